@@ -1,5 +1,9 @@
 import edu.princeton.cs.algs4.StdIn;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.InputMismatchException;
+
 /** Simple Arithmetic Class.
  * @author Josh Hug
  * */
@@ -23,7 +27,44 @@ public class Arithmetic {
         return a + b;
     }
 
-    public static void main(String[] args) {
+    /** Reads pairs of numbers until the input runs out and applies sum and
+     * product to each. Returns {pairs, total of sums, total of products},
+     * with the totals wrapping around like the ints they add up. Throws
+     * InputMismatchException naming the last number if it has no partner. */
+    public static long[] batch(IntReader in) {
+        long pairs = 0;
+        int sums = 0;
+        int products = 0;
+        while (in.hasNext()) {
+            int a = in.readInt();
+            if (!in.hasNext()) {
+                throw new InputMismatchException("Odd number of numbers: " + a
+                        + " after " + pairs + " pairs has no partner");
+            }
+            int b = in.readInt();
+            sums += sum(a, b);
+            products += product(a, b);
+            pairs += 1;
+        }
+        return new long[] {pairs, sums, products};
+    }
+
+    /** Run with "--batch [file]" to apply sum and product to every pair of
+     * numbers in the file (or standard input) and report the throughput.
+     * With no arguments, asks for two numbers. */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            long start = System.nanoTime();
+            long[] result;
+            try (IntReader in = args.length > 1 ? IntReader.open(Path.of(args[1])) : new IntReader(System.in)) {
+                result = batch(in);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d pairs in %.3f s (%.0f pairs/s)%n", result[0], seconds, result[0] / seconds);
+            System.out.println("Total of sums: " + result[1] + ", total of products: " + result[2]);
+            return;
+        }
+
         System.out.println("Give me a number! (no decimals, please)");
         int num1 = StdIn.readInt();
         System.out.println("Give me another number! (still no decimals)");
@@ -0,0 +1,220 @@
+/** Sums and products over whole arrays of ints, with a choice of what
+ * happens when a result does not fit in an int.
+ *
+ * The loops are kept simple enough for the JIT to turn into SIMD code:
+ * no branches in the body. EXACT goes a block at a time: it collects
+ * overflow in a block into a flag without writing anything, looks for the
+ * first bad index only if that flag is set, then writes the block. It
+ * throws once every item has been written.
+ */
+public class ArithmeticKernels {
+
+    /** What to do with a result outside the range of an int. */
+    public enum Overflow {
+        /** Keep the low 32 bits, as int arithmetic does. */
+        WRAP,
+        /** Use Integer.MAX_VALUE or Integer.MIN_VALUE instead. */
+        SATURATE,
+        /** Throw an ArithmeticException. */
+        EXACT
+    }
+
+    /** Puts a[i] + b[i] into out[i] for every i. out may be a or b itself.
+     * With EXACT, out is filled in before the overflow is reported, and the
+     * exception names the first index that overflowed. */
+    public static void sum(int[] a, int[] b, int[] out, Overflow overflow) {
+        checkLengths(a, b, out);
+        int n = a.length;
+        switch (overflow) {
+            case WRAP -> {
+                for (int i = 0; i < n; i += 1) {
+                    out[i] = a[i] + b[i];
+                }
+            }
+            case SATURATE -> {
+                for (int i = 0; i < n; i += 1) {
+                    out[i] = saturate((long) a[i] + b[i]);
+                }
+            }
+            case EXACT -> {
+                int first = NONE;
+                for (int start = 0; start < n; start += BLOCK) {
+                    int end = Math.min(start + BLOCK, n);
+                    // A sum overflowed if its sign differs from both operands'.
+                    // Check the block before writing it, since out may be a or b.
+                    int flags = 0;
+                    for (int i = start; i < end; i += 1) {
+                        int r = a[i] + b[i];
+                        flags |= (a[i] ^ r) & (b[i] ^ r);
+                    }
+                    if (flags < 0 && first == NONE) {
+                        first = start;
+                        while (!sumOverflows(a[first], b[first])) {
+                            first += 1;
+                        }
+                    }
+                    for (int i = start; i < end; i += 1) {
+                        out[i] = a[i] + b[i];
+                    }
+                }
+                if (first != NONE) {
+                    throw overflowAt("sum", first);
+                }
+            }
+        }
+    }
+
+    /** Puts a[i] * b[i] into out[i] for every i, like sum. */
+    public static void product(int[] a, int[] b, int[] out, Overflow overflow) {
+        checkLengths(a, b, out);
+        int n = a.length;
+        switch (overflow) {
+            case WRAP -> {
+                for (int i = 0; i < n; i += 1) {
+                    out[i] = a[i] * b[i];
+                }
+            }
+            case SATURATE -> {
+                for (int i = 0; i < n; i += 1) {
+                    out[i] = saturate((long) a[i] * b[i]);
+                }
+            }
+            case EXACT -> {
+                int first = NONE;
+                for (int start = 0; start < n; start += BLOCK) {
+                    int end = Math.min(start + BLOCK, n);
+                    // The full product of two ints always fits in a long.
+                    long flags = 0;
+                    for (int i = start; i < end; i += 1) {
+                        long p = (long) a[i] * b[i];
+                        flags |= p ^ (int) p;
+                    }
+                    if (flags != 0 && first == NONE) {
+                        first = start;
+                        while (!productOverflows(a[first], b[first])) {
+                            first += 1;
+                        }
+                    }
+                    for (int i = start; i < end; i += 1) {
+                        out[i] = a[i] * b[i];
+                    }
+                }
+                if (first != NONE) {
+                    throw overflowAt("product", first);
+                }
+            }
+        }
+    }
+
+    /** Returns the sum of every item in a (0 if there are none). SATURATE
+     * and EXACT look at the true total, so items that overflow partway
+     * through and come back into range give the right answer. */
+    public static int sum(int[] a, Overflow overflow) {
+        if (overflow == Overflow.WRAP) {
+            int total = 0;
+            for (int x : a) {
+                total += x;
+            }
+            return total;
+        }
+        // An array has fewer than 2^31 items, so this long cannot overflow.
+        long total = 0;
+        for (int x : a) {
+            total += x;
+        }
+        return finish(total, overflow, "sum");
+    }
+
+    /** Returns the product of every item in a (1 if there are none), like
+     * sum. */
+    public static int product(int[] a, Overflow overflow) {
+        if (overflow == Overflow.WRAP) {
+            int total = 1;
+            for (int x : a) {
+                total *= x;
+            }
+            return total;
+        }
+        // Once the product leaves the range of an int, only its sign and
+        // whether it later hits zero matter, so its size is capped at
+        // OUT_OF_RANGE to keep the next multiplication from overflowing a long.
+        long total = 1;
+        for (int x : a) {
+            total = Math.max(-OUT_OF_RANGE, Math.min(OUT_OF_RANGE, total * x));
+        }
+        return finish(total, overflow, "product");
+    }
+
+    /** Stands for "no overflow yet" when looking for the first one. */
+    private static final int NONE = -1;
+    /** EXACT checks and writes this many items at a time, small enough that
+     * a block is still in cache when it is read the second time. */
+    private static final int BLOCK = 1024;
+
+    /** Larger than any int and smaller than any int's negation. */
+    private static final long OUT_OF_RANGE = (long) Integer.MAX_VALUE + 2;
+
+    private static int finish(long total, Overflow overflow, String operation) {
+        if (overflow == Overflow.EXACT && total != (int) total) {
+            throw new ArithmeticException("integer overflow in " + operation);
+        }
+        return saturate(total);
+    }
+
+    private static boolean sumOverflows(int x, int y) {
+        int r = x + y;
+        return ((x ^ r) & (y ^ r)) < 0;
+    }
+
+    private static boolean productOverflows(int x, int y) {
+        return (long) x * y != x * y;
+    }
+
+    private static int saturate(long x) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, x));
+    }
+
+    private static ArithmeticException overflowAt(String operation, int index) {
+        return new ArithmeticException("integer overflow in " + operation + " at index " + index);
+    }
+
+    private static void checkLengths(int[] a, int[] b, int[] out) {
+        if (a.length != b.length || a.length != out.length) {
+            throw new IllegalArgumentException("Arrays must be the same length, but got "
+                    + a.length + ", " + b.length + " and " + out.length);
+        }
+    }
+
+    /** Times each kind of element-wise sum and product over random arrays
+     * and prints millions of items per second. */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        java.util.Random random = new java.util.Random(47);
+        int[] a = new int[n];
+        int[] b = new int[n];
+        int[] out = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            a[i] = random.nextInt(1 << 15);
+            b[i] = random.nextInt(1 << 15);
+        }
+        for (int warmup = 0; warmup < 2; warmup += 1) {
+            for (Overflow overflow : Overflow.values()) {
+                long start = System.nanoTime();
+                for (int r = 0; r < rounds; r += 1) {
+                    sum(a, b, out, overflow);
+                }
+                long middle = System.nanoTime();
+                for (int r = 0; r < rounds; r += 1) {
+                    product(a, b, out, overflow);
+                }
+                long end = System.nanoTime();
+                if (warmup == 1) {
+                    System.out.printf("%-8s sum %8.1f M/s   product %8.1f M/s%n", overflow,
+                            (double) n * rounds / (middle - start) * 1e3,
+                            (double) n * rounds / (end - middle) * 1e3);
+                }
+            }
+        }
+    }
+}
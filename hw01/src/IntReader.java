@@ -0,0 +1,152 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/** Reads whitespace-separated integers much faster than StdIn.
+ *
+ * Bytes are read from a channel in large blocks and digits are parsed
+ * straight out of the buffer, so no regular expressions are run and no
+ * String is made per number. Only plain decimal integers with an optional
+ * sign are accepted. Bytes up to ' ' separate numbers; any other byte,
+ * including every non-ASCII one, is part of a token.
+ */
+public class IntReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buffer.array();
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    public IntReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public IntReader(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    /** Returns a reader of the given file. */
+    public static IntReader open(Path file) throws IOException {
+        return new IntReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /** Reads the next block of input into the buffer. Returns false if
+     * there is none left. */
+    private boolean fill() {
+        if (endOfInput) {
+            return false;
+        }
+        try {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            position = 0;
+            limit = Math.max(read, 0);
+            endOfInput = read < 0;
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Skips whitespace and returns true if there is anything after it. */
+    public boolean hasNext() {
+        while (true) {
+            while (position < limit) {
+                if ((bytes[position] & 0xFF) > ' ') {
+                    return true;
+                }
+                position += 1;
+            }
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    /** Reads the next number as an int. Throws NoSuchElementException if
+     * the input is used up and InputMismatchException if the next token is
+     * not an int. */
+    public int readInt() {
+        return (int) readNumber(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /** Reads the next number as a long, like readInt. */
+    public long readLong() {
+        return readNumber(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Parses the next token as a number between min and max. The number is
+     * built up as a negative value, which has room for min itself. */
+    private long readNumber(long min, long max) {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more numbers in the input");
+        }
+        boolean negative = false;
+        int b = bytes[position] & 0xFF;
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position += 1;
+        }
+        long bound = negative ? min : -max;
+        long boundOverTen = bound / 10;
+        long result = 0;
+        int digits = 0;
+        boolean overflow = false;
+        while (position < limit || fill()) {
+            b = bytes[position] & 0xFF;
+            if (b <= ' ') {
+                break;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                skipToken();
+                throw new InputMismatchException("Not an integer: unexpected '" + (char) b + "'");
+            }
+            if (result < boundOverTen || result * 10 < bound + digit) {
+                overflow = true;
+            } else {
+                result = result * 10 - digit;
+            }
+            digits += 1;
+            position += 1;
+        }
+        if (digits == 0) {
+            throw new InputMismatchException("Not an integer: sign with no digits");
+        }
+        if (overflow) {
+            throw new InputMismatchException("Out of range: must be between " + min + " and " + max);
+        }
+        return negative ? result : -result;
+    }
+
+    /** Skips the rest of a token that could not be parsed, so the next read
+     * starts at the token after it. */
+    private void skipToken() {
+        while (position < limit || fill()) {
+            if ((bytes[position] & 0xFF) <= ' ') {
+                return;
+            }
+            position += 1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ArithmeticKernelsTest {
+
+    private static final ArithmeticKernels.Overflow WRAP = ArithmeticKernels.Overflow.WRAP;
+    private static final ArithmeticKernels.Overflow SATURATE = ArithmeticKernels.Overflow.SATURATE;
+    private static final ArithmeticKernels.Overflow EXACT = ArithmeticKernels.Overflow.EXACT;
+
+    private static int clamp(BigInteger x) {
+        return x.max(BigInteger.valueOf(Integer.MIN_VALUE)).min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue();
+    }
+
+    /** Returns arrays mixing small numbers with ones near the edges of an int. */
+    private static int[] randomInts(Random random, int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            a[i] = switch (random.nextInt(3)) {
+                case 0 -> random.nextInt(200) - 100;
+                case 1 -> random.nextInt();
+                default -> random.nextBoolean() ? Integer.MAX_VALUE - random.nextInt(3) : Integer.MIN_VALUE + random.nextInt(3);
+            };
+        }
+        return a;
+    }
+
+    @Test
+    @DisplayName("Test element-wise kernels against BigInteger")
+    public void testElementWise() {
+        Random random = new Random(47);
+        int[] a = randomInts(random, 1000);
+        int[] b = randomInts(random, 1000);
+        int[] out = new int[1000];
+
+        ArithmeticKernels.sum(a, b, out, WRAP);
+        for (int i = 0; i < a.length; i += 1) {
+            assertThat(out[i]).isEqualTo(Arithmetic.sum(a[i], b[i]));
+        }
+        ArithmeticKernels.product(a, b, out, WRAP);
+        for (int i = 0; i < a.length; i += 1) {
+            assertThat(out[i]).isEqualTo(Arithmetic.product(a[i], b[i]));
+        }
+        ArithmeticKernels.sum(a, b, out, SATURATE);
+        for (int i = 0; i < a.length; i += 1) {
+            assertThat(out[i]).isEqualTo(clamp(BigInteger.valueOf(a[i]).add(BigInteger.valueOf(b[i]))));
+        }
+        ArithmeticKernels.product(a, b, out, SATURATE);
+        for (int i = 0; i < a.length; i += 1) {
+            assertThat(out[i]).isEqualTo(clamp(BigInteger.valueOf(a[i]).multiply(BigInteger.valueOf(b[i]))));
+        }
+    }
+
+    @Test
+    @DisplayName("Test exact kernels report the first overflow")
+    public void testExact() {
+        int[] a = {1, -5, Integer.MAX_VALUE, 7, Integer.MIN_VALUE};
+        int[] b = {2, 6, -1, 8, -1};
+        int[] out = new int[5];
+        ArithmeticKernels.sum(a, new int[] {2, 6, -1, 8, 0}, out, EXACT);
+        assertThat(out).asList().containsExactly(3, 1, Integer.MAX_VALUE - 1, 15, Integer.MIN_VALUE);
+        ArithmeticException thrown = assertThrows(ArithmeticException.class,
+                () -> ArithmeticKernels.sum(a, b, out, EXACT));
+        assertThat(thrown.getMessage()).contains("index 4");
+        thrown = assertThrows(ArithmeticException.class, () -> ArithmeticKernels.product(
+                new int[] {3, 1 << 16, 1 << 20}, new int[] {3, 1 << 15, 1 << 12}, new int[3], EXACT));
+        assertThat(thrown.getMessage()).contains("index 1");
+    }
+
+    @Test
+    @DisplayName("Test exact kernels writing over one of their inputs")
+    public void testExactInPlace() {
+        int[] a = {Integer.MAX_VALUE, 1};
+        ArithmeticException thrown = assertThrows(ArithmeticException.class,
+                () -> ArithmeticKernels.sum(a, new int[] {1, 2}, a, EXACT));
+        assertThat(thrown.getMessage()).contains("index 0");
+        assertThat(a).asList().containsExactly(Integer.MIN_VALUE, 3);
+
+        int[] b = {7, Integer.MIN_VALUE, 4};
+        thrown = assertThrows(ArithmeticException.class,
+                () -> ArithmeticKernels.sum(new int[] {1, -1, 2}, b, b, EXACT));
+        assertThat(thrown.getMessage()).contains("index 1");
+
+        int[] c = {3, 1 << 16, 1 << 20};
+        int[] d = {5, 1 << 15, 1 << 12};
+        thrown = assertThrows(ArithmeticException.class,
+                () -> ArithmeticKernels.product(c, d, c, EXACT));
+        assertThat(thrown.getMessage()).contains("index 1");
+        assertThat(c[0]).isEqualTo(15);
+
+        // Overflows in later blocks, written in place.
+        int[] big = new int[5000];
+        java.util.Arrays.fill(big, 3);
+        big[3000] = 1 << 20;
+        big[4000] = 1 << 20;
+        thrown = assertThrows(ArithmeticException.class, () -> ArithmeticKernels.product(big, big, big, EXACT));
+        assertThat(thrown.getMessage()).contains("index 3000");
+        assertThat(big[4999]).isEqualTo(9);
+
+        int[] e = {6, -7};
+        ArithmeticKernels.product(e, e, e, EXACT);
+        assertThat(e).asList().containsExactly(36, 49);
+    }
+
+    @Test
+    @DisplayName("Test reductions look at the true total")
+    public void testReductions() {
+        int[] comesBack = {Integer.MAX_VALUE, 10, -20};
+        assertThat(ArithmeticKernels.sum(comesBack, EXACT)).isEqualTo(Integer.MAX_VALUE - 10);
+        assertThat(ArithmeticKernels.sum(new int[] {Integer.MIN_VALUE, -1}, SATURATE)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(ArithmeticKernels.sum(new int[] {Integer.MIN_VALUE, -1}, WRAP)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(ArithmeticKernels.sum(new int[0], EXACT)).isEqualTo(0);
+
+        int[] big = {1 << 20, -(1 << 20), 1 << 20, 3};
+        assertThat(ArithmeticKernels.product(big, SATURATE)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(ArithmeticKernels.product(new int[] {1 << 30, 1 << 30, 0}, EXACT)).isEqualTo(0);
+        assertThat(ArithmeticKernels.product(new int[] {-1, Integer.MIN_VALUE}, SATURATE)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(ArithmeticKernels.product(new int[] {-2, 3, 5}, EXACT)).isEqualTo(-30);
+        assertThat(ArithmeticKernels.product(new int[0], WRAP)).isEqualTo(1);
+        assertThrows(ArithmeticException.class, () -> ArithmeticKernels.product(big, EXACT));
+
+        Random random = new Random(48);
+        for (int trial = 0; trial < 200; trial += 1) {
+            int[] a = randomInts(random, 1 + random.nextInt(6));
+            BigInteger sum = BigInteger.ZERO;
+            BigInteger product = BigInteger.ONE;
+            for (int x : a) {
+                sum = sum.add(BigInteger.valueOf(x));
+                product = product.multiply(BigInteger.valueOf(x));
+            }
+            assertThat(ArithmeticKernels.sum(a, SATURATE)).isEqualTo(clamp(sum));
+            assertThat(ArithmeticKernels.product(a, SATURATE)).isEqualTo(clamp(product));
+            assertThat(ArithmeticKernels.product(a, WRAP)).isEqualTo(product.intValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Test mismatched lengths are rejected")
+    public void testLengths() {
+        assertThrows(IllegalArgumentException.class, () -> ArithmeticKernels.sum(new int[2], new int[3], new int[2], WRAP));
+    }
+}
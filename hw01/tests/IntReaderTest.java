@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IntReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static IntReader reader(String input) {
+        return new IntReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    @DisplayName("Test reading ints and longs")
+    public void testRead() {
+        IntReader in = reader("  5 -6\n\n+7\t2147483647 -2147483648\r\n-9223372036854775808 0 ");
+        assertThat(in.readInt()).isEqualTo(5);
+        assertThat(in.readInt()).isEqualTo(-6);
+        assertThat(in.readInt()).isEqualTo(7);
+        assertThat(in.readInt()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(in.readInt()).isEqualTo(Integer.MIN_VALUE);
+        assertThat(in.readLong()).isEqualTo(Long.MIN_VALUE);
+        assertThat(in.hasNext()).isTrue();
+        assertThat(in.readInt()).isEqualTo(0);
+        assertThat(in.hasNext()).isFalse();
+        assertThrows(NoSuchElementException.class, in::readInt);
+    }
+
+    @Test
+    @DisplayName("Test bad numbers are rejected and skipped")
+    public void testMismatch() {
+        IntReader in = reader("2147483648 12x4 - -2147483649 3");
+        for (int i = 0; i < 4; i += 1) {
+            assertThrows(InputMismatchException.class, in::readInt);
+        }
+        assertThat(in.readInt()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Test non-ASCII bytes are not whitespace")
+    public void testNonAscii() {
+        IntReader in = new IntReader(new ByteArrayInputStream("12\u00e9 \u00a07 8".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(InputMismatchException.class, in::readInt);
+        assertThrows(InputMismatchException.class, in::readInt);
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test batch reports a number left without a partner")
+    public void testBatchOddCount() {
+        InputMismatchException thrown = assertThrows(InputMismatchException.class,
+                () -> Arithmetic.batch(reader("1 2\n3 4\n-57\n")));
+        assertThat(thrown.getMessage()).contains("-57");
+        assertThat(thrown.getMessage()).contains("after 2 pairs");
+    }
+
+    @Test
+    @DisplayName("Test a large file crossing many buffer boundaries")
+    public void testLargeFile() throws IOException {
+        Random random = new Random(46);
+        int[] expected = new int[200_000];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < expected.length; i += 1) {
+            expected[i] = random.nextInt();
+            text.append(expected[i]).append(i % 7 == 0 ? "\n" : " ");
+        }
+        Path file = tempDir.resolve("numbers.txt");
+        Files.writeString(file, text);
+
+        try (IntReader in = IntReader.open(file)) {
+            for (int i = 0; i < expected.length; i += 1) {
+                assertThat(in.readInt()).isEqualTo(expected[i]);
+            }
+            assertThat(in.hasNext()).isFalse();
+        }
+
+        try (IntReader in = IntReader.open(file)) {
+            long[] result = Arithmetic.batch(in);
+            int sums = 0;
+            int products = 0;
+            for (int i = 0; i < expected.length; i += 2) {
+                sums += expected[i] + expected[i + 1];
+                products += expected[i] * expected[i + 1];
+            }
+            assertThat(result[0]).isEqualTo((long) expected.length / 2);
+            assertThat(result[1]).isEqualTo((long) sums);
+            assertThat(result[2]).isEqualTo((long) products);
+        }
+    }
+}
@@ -1,11 +1,79 @@
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 public class DoubleUp {
    /**
      * Returns a new string where each character of the given string is repeated twice.
      * Example: doubleUp("hello") -> "hheelllloo"
+     * A character outside the Basic Multilingual Plane, such as an emoji, is
+     * a surrogate pair in Java, and the pair is repeated as a whole.
      */
    public static String doubleUp(String s) {
-      // TODO: Fill in this function
-      return null;
+      char[] chars = s.toCharArray();
+      char[] result = new char[chars.length * 2];
+      doubleUp(chars, 0, chars.length, result, 0);
+      return new String(result);
+   }
+
+   /**
+     * Writes each character of s twice to out, without building an
+     * intermediate string. Passing a StringBuilder, a BufferedWriter or a
+     * CharBuffer means no allocation happens per character.
+     */
+   public static void doubleUp(CharSequence s, Appendable out) throws IOException {
+      int i = 0;
+      while (i < s.length()) {
+         char c = s.charAt(i);
+         if (charWidth(s, i, s.length()) == 2) {
+            char low = s.charAt(i + 1);
+            out.append(c).append(low).append(c).append(low);
+            i += 2;
+         } else {
+            out.append(c).append(c);
+            i += 1;
+         }
+      }
+   }
+
+   /**
+     * Writes each character of s[offset, offset + length) twice to out.
+     */
+   public static void doubleUp(char[] s, int offset, int length, Appendable out) throws IOException {
+      doubleUp(CharBuffer.wrap(s, offset, length), out);
+   }
+
+   /**
+     * Writes each character of src[srcOffset, srcOffset + length) twice into
+     * dest starting at destOffset, and returns the number of characters
+     * written (always 2 * length). dest must have room for all of them.
+     */
+   public static int doubleUp(char[] src, int srcOffset, int length, char[] dest, int destOffset) {
+      int d = destOffset;
+      int end = srcOffset + length;
+      int i = srcOffset;
+      while (i < end) {
+         if (i + 1 < end && Character.isSurrogatePair(src[i], src[i + 1])) {
+            dest[d] = src[i];
+            dest[d + 1] = src[i + 1];
+            dest[d + 2] = src[i];
+            dest[d + 3] = src[i + 1];
+            d += 4;
+            i += 2;
+         } else {
+            dest[d] = src[i];
+            dest[d + 1] = src[i];
+            d += 2;
+            i += 1;
+         }
+      }
+      return d - destOffset;
+   }
+
+   /**
+     * Returns 2 if s[i] starts a surrogate pair that ends before end, else 1.
+     */
+   static int charWidth(CharSequence s, int i, int end) {
+      return i + 1 < end && Character.isSurrogatePair(s.charAt(i), s.charAt(i + 1)) ? 2 : 1;
    }
    
    public static void main(String[] args) {
@@ -1,10 +1,78 @@
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 public class PrintIndexed {
    /**
      * Prints each character of a given string followed by the reverse of its index.
      * Example: printIndexed("hello") -> h4e3l2l1o0
+     * A surrogate pair (such as an emoji) counts as one character.
      */
    public static void printIndexed(String s) {
-      // TODO: Fill in this function
+      int n = s.codePointCount(0, s.length());
+      StringBuilder sb = new StringBuilder(indexedLength(n) + s.length() - n + 1);
+      try {
+         printIndexed(s, sb);
+      } catch (IOException e) {
+         // StringBuilder.append never throws.
+         throw new AssertionError(e);
+      }
+      sb.append('\n');
+      System.out.print(sb);
+   }
+
+   /**
+     * Writes each character of s followed by the reverse of its index to out.
+     * Indices are written digit by digit, so no strings are created.
+     */
+   public static void printIndexed(CharSequence s, Appendable out) throws IOException {
+      int remaining = Character.codePointCount(s, 0, s.length());
+      int i = 0;
+      while (i < s.length()) {
+         int width = DoubleUp.charWidth(s, i, s.length());
+         out.append(s.charAt(i));
+         if (width == 2) {
+            out.append(s.charAt(i + 1));
+         }
+         remaining -= 1;
+         appendIndex(remaining, out);
+         i += width;
+      }
+   }
+
+   /**
+     * Writes each character of s[offset, offset + length) followed by the
+     * reverse of its index within that range to out.
+     */
+   public static void printIndexed(char[] s, int offset, int length, Appendable out) throws IOException {
+      printIndexed(CharBuffer.wrap(s, offset, length), out);
+   }
+
+   /**
+     * Returns how many characters printIndexed writes for a string of n
+     * characters, none of them surrogate pairs, so callers can size their
+     * buffers exactly. Each surrogate pair adds one more.
+     */
+   public static int indexedLength(int n) {
+      // One character plus one digit per index, then an extra digit for
+      // every index >= 10, another for every index >= 100, and so on.
+      long total = 2L * n;
+      for (long power = 10; power <= n - 1; power *= 10) {
+         total += n - power;
+      }
+      return Math.toIntExact(total);
+   }
+
+   /**
+     * Writes the decimal digits of a non-negative index to out.
+     */
+   static void appendIndex(long index, Appendable out) throws IOException {
+      long divisor = 1;
+      while (divisor <= index / 10) {
+         divisor *= 10;
+      }
+      for (; divisor > 0; divisor /= 10) {
+         out.append((char) ('0' + (index / divisor) % 10));
+      }
    }
 
    public static void main(String[] args) {
@@ -1,13 +1,22 @@
 public class StarTriangle5 {
+   /** The whole triangle, so printing it takes a single call. */
+   private static final String TRIANGLE = """
+          *
+         **
+        ***
+       ****
+      *****
+      """;
+
    /**
      * Prints a right-aligned triangle of stars ('*') with 5 lines.
      * The first row contains 1 star, the second 2 stars, and so on. 
      */
    public static void starTriangle5() {
-      // TODO: Fill in this function
+      System.out.print(TRIANGLE);
    }
    
    public static void main(String[] args) {
       starTriangle5();
    }
-}
\ No newline at end of file
+}
@@ -1,13 +1,115 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
 public class StarTriangleN {
+   private static final int BUFFER_SIZE = 1 << 20;
+
    /**
      * Prints a right-aligned triangle of stars ('*') with N lines.
      * The first row contains 1 star, the second 2 stars, and so on. 
      */
    public static void starTriangle(int N) {
-      // TODO: Fill in this function
+      // System.out flushes on every newline, so collect rows in a large
+      // buffer and hand them over a block at a time instead.
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), BUFFER_SIZE);
+      try {
+         starTriangle(N, out);
+         out.flush();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
    }
-   
-   public static void main(String[] args) {
-      starTriangle(7);
+
+   /**
+     * Writes the triangle to out. Every row is written from one char[]:
+     * row i is row i - 1 with one more space turned into a star, so no
+     * strings are built. out should be buffered if N is small.
+     */
+   public static void starTriangle(int N, Writer out) throws IOException {
+      checkRows(N);
+      char[] row = new char[N + 1];
+      Arrays.fill(row, 0, N, ' ');
+      row[N] = '\n';
+      for (int i = 1; i <= N; i += 1) {
+         row[N - i] = '*';
+         out.write(row, 0, N + 1);
+      }
+   }
+
+   /**
+     * Writes the triangle to the given file as ASCII, replacing anything
+     * already there. Rows are built as bytes and gathered into a direct
+     * buffer that goes straight to a FileChannel; a row too long for the
+     * buffer is written on its own. Returns the number of bytes written.
+     */
+   public static long starTriangle(int N, Path file) throws IOException {
+      checkRows(N);
+      byte[] row = new byte[N + 1];
+      Arrays.fill(row, 0, N, (byte) ' ');
+      row[N] = '\n';
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      ByteBuffer wholeRow = ByteBuffer.wrap(row);
+      long written = 0;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+         for (int i = 1; i <= N; i += 1) {
+            row[N - i] = '*';
+            if (buffer.remaining() < row.length) {
+               drain(buffer, channel);
+            }
+            if (row.length <= buffer.capacity()) {
+               buffer.put(row);
+            } else {
+               wholeRow.clear();
+               while (wholeRow.hasRemaining()) {
+                  channel.write(wholeRow);
+               }
+            }
+            written += row.length;
+         }
+         drain(buffer, channel);
+      }
+      return written;
+   }
+
+   private static void checkRows(int N) {
+      if (N < 0) {
+         throw new IllegalArgumentException("N must be at least 0, but was " + N);
+      }
+   }
+
+   private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   /**
+     * Usage: java StarTriangleN [N [output]]
+     * With an output file, writes the triangle there and reports how fast.
+     */
+   public static void main(String[] args) throws IOException {
+      int N = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+      if (args.length < 2) {
+         starTriangle(N);
+         return;
+      }
+      long start = System.nanoTime();
+      long bytes = starTriangle(N, Path.of(args[1]));
+      double seconds = (System.nanoTime() - start) / 1e9;
+      double megabytes = bytes / 1e6;
+      System.out.printf("%d rows, %.1f MB in %.2f s (%.1f MB/s)%n",
+            N, megabytes, seconds, megabytes / seconds);
    }
-}
\ No newline at end of file
+}
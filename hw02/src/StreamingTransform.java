@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class StreamingTransform {
+   private static final int CHUNK_SIZE = 1 << 20;
+
+   /**
+     * Something to do with each chunk of characters decoded from a file.
+     */
+   private interface ChunkHandler {
+      void handle(CharBuffer chunk) throws IOException;
+   }
+
+   /**
+     * Applies DoubleUp to the UTF-8 text in the given file and writes the
+     * result to out. The file is processed one chunk at a time, so it can be
+     * much larger than the heap. Returns the number of characters read,
+     * counting a surrogate pair as one.
+     */
+   public static long doubleUp(Path in, Path out) throws IOException {
+      long[] count = {0};
+      char[] doubled = new char[2 * CHUNK_SIZE];
+      try (Writer writer = openWriter(out)) {
+         forEachChunk(in, chunk -> {
+            int length = chunk.remaining();
+            int written = DoubleUp.doubleUp(chunk.array(), chunk.arrayOffset() + chunk.position(), length,
+                  doubled, 0);
+            writer.write(doubled, 0, written);
+            count[0] += Character.codePointCount(chunk, 0, length);
+         });
+      }
+      return count[0];
+   }
+
+   /**
+     * Applies PrintIndexed to the UTF-8 text in the given file and writes the
+     * result to out. Every index counts back from the end of the whole file,
+     * so the file is read twice: once to count its characters and once to
+     * transform them. A surrogate pair counts as one character, both in the
+     * indices and in the number of characters returned.
+     */
+   public static long printIndexed(Path in, Path out) throws IOException {
+      long[] total = {0};
+      forEachChunk(in, chunk -> total[0] += Character.codePointCount(chunk, 0, chunk.remaining()));
+
+      long[] remaining = {total[0]};
+      CharBuffer indexed = CharBuffer.allocate(2 * CHUNK_SIZE);
+      try (Writer writer = openWriter(out)) {
+         forEachChunk(in, chunk -> {
+            while (chunk.hasRemaining()) {
+               // A surrogate pair plus at most 19 digits for a long index.
+               if (indexed.remaining() < 21) {
+                  writer.write(indexed.array(), 0, indexed.position());
+                  indexed.clear();
+               }
+               char c = chunk.get();
+               indexed.put(c);
+               if (chunk.hasRemaining() && Character.isSurrogatePair(c, chunk.get(chunk.position()))) {
+                  indexed.put(chunk.get());
+               }
+               remaining[0] -= 1;
+               PrintIndexed.appendIndex(remaining[0], indexed);
+            }
+         });
+         writer.write(indexed.array(), 0, indexed.position());
+      }
+      return total[0];
+   }
+
+   /**
+     * Returns a UTF-8 writer on top of a FileChannel for the given file.
+     * Callers transform a whole chunk into a char[] first and hand it over
+     * in one write, so the writer's lock is taken once per chunk rather than
+     * once per character.
+     */
+   private static Writer openWriter(Path file) throws IOException {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      return Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), CHUNK_SIZE);
+   }
+
+   /**
+     * Reads the given file through a FileChannel, decodes it as UTF-8, and
+     * passes each decoded chunk to handler. A character split across two
+     * reads is held back until the rest of its bytes arrive, and so is the
+     * first half of a surrogate pair split across two chunks, so handlers
+     * always see whole pairs.
+     */
+   private static void forEachChunk(Path file, ChunkHandler handler) throws IOException {
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+      ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+      CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         boolean endOfInput = false;
+         while (!endOfInput) {
+            endOfInput = channel.read(bytes) == -1;
+            bytes.flip();
+            CoderResult result;
+            do {
+               result = decoder.decode(bytes, chars, endOfInput);
+               if (result.isError()) {
+                  result.throwException();
+               }
+               emit(chars, handler, false);
+            } while (result.isOverflow());
+            bytes.compact();
+         }
+         decoder.flush(chars);
+         emit(chars, handler, true);
+      }
+   }
+
+   private static void emit(CharBuffer chars, ChunkHandler handler, boolean last) throws IOException {
+      chars.flip();
+      int end = chars.limit();
+      boolean split = !last && end > 0 && Character.isHighSurrogate(chars.get(end - 1));
+      if (split) {
+         chars.limit(end - 1);
+      }
+      if (chars.hasRemaining()) {
+         handler.handle(chars);
+      }
+      // Handlers read chars to the end, so only a held-back half is left.
+      chars.position(chars.limit());
+      chars.limit(end);
+      chars.compact();
+   }
+
+   /**
+     * Usage: java StreamingTransform [doubleUp|printIndexed] input output
+     */
+   public static void main(String[] args) throws IOException {
+      if (args.length != 3) {
+         System.out.println("Usage: java StreamingTransform [doubleUp|printIndexed] input output");
+         return;
+      }
+      Path in = Path.of(args[1]);
+      Path out = Path.of(args[2]);
+
+      long start = System.nanoTime();
+      long chars;
+      if (args[0].equals("doubleUp")) {
+         chars = doubleUp(in, out);
+      } else if (args[0].equals("printIndexed")) {
+         chars = printIndexed(in, out);
+      } else {
+         System.out.println("Unknown transform: " + args[0]);
+         return;
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      double megabytes = Files.size(in) / 1e6;
+      System.out.printf("%s: %d characters, %.1f MB in %.2f s (%.1f MB/s)%n",
+            args[0], chars, megabytes, seconds, megabytes / seconds);
+   }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StarTriangleTest {
+
+   @TempDir
+   Path tempDir;
+
+   /** Builds the triangle the slow way, one string per row. */
+   private static String triangle(int n) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 1; i <= n; i += 1) {
+         sb.append(" ".repeat(n - i)).append("*".repeat(i)).append('\n');
+      }
+      return sb.toString();
+   }
+
+   /** Returns what action prints to System.out. */
+   private static String printed(Runnable action) {
+      PrintStream original = System.out;
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(bytes, true, StandardCharsets.US_ASCII));
+      try {
+         action.run();
+      } finally {
+         System.setOut(original);
+      }
+      return bytes.toString(StandardCharsets.US_ASCII);
+   }
+
+   @Test
+   @DisplayName("Test the triangle written to a Writer")
+   public void testWriter() throws IOException {
+      for (int n : new int[] {0, 1, 2, 5, 50}) {
+         StringWriter out = new StringWriter();
+         StarTriangleN.starTriangle(n, out);
+         assertThat(out.toString()).isEqualTo(triangle(n));
+      }
+   }
+
+   @Test
+   @DisplayName("Test the triangle written to a file")
+   public void testFile() throws IOException {
+      Path file = tempDir.resolve("triangle.txt");
+      Files.writeString(file, "left over from before, and longer than the triangle");
+      assertThat(StarTriangleN.starTriangle(3, file)).isEqualTo(12);
+      assertThat(Files.readString(file, StandardCharsets.US_ASCII)).isEqualTo(triangle(3));
+
+      assertThat(StarTriangleN.starTriangle(0, file)).isEqualTo(0);
+      assertThat(Files.size(file)).isEqualTo(0);
+
+      // About 4 MB, so the rows cross several buffer boundaries.
+      assertThat(StarTriangleN.starTriangle(2000, file)).isEqualTo(2000L * 2001);
+      assertThat(Files.readString(file, StandardCharsets.US_ASCII)).isEqualTo(triangle(2000));
+   }
+
+   @Test
+   @DisplayName("Test printing to standard output")
+   public void testPrint() {
+      assertThat(printed(() -> StarTriangleN.starTriangle(7))).isEqualTo(triangle(7));
+      assertThat(printed(() -> StarTriangleN.starTriangle(0))).isEmpty();
+      assertThat(printed(StarTriangle5::starTriangle5)).isEqualTo(triangle(5));
+   }
+
+   @Test
+   @DisplayName("Test negative N is rejected before anything is written")
+   public void testNegative() throws IOException {
+      assertThrows(IllegalArgumentException.class, () -> StarTriangleN.starTriangle(-1, new StringWriter()));
+
+      Path file = tempDir.resolve("keep.txt");
+      Files.writeString(file, "keep me");
+      IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+            () -> StarTriangleN.starTriangle(-5, file));
+      assertThat(thrown.getMessage()).contains("-5");
+      assertThat(Files.readString(file)).isEqualTo("keep me");
+   }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StreamingTransformTest {
+
+   /** Characters decoded per chunk by StreamingTransform. */
+   private static final int CHUNK_SIZE = 1 << 20;
+
+   @TempDir
+   Path tempDir;
+
+   /** Runs both streaming transforms over text and checks them against the
+     * in-memory versions. */
+   private void checkTransforms(String text) throws IOException {
+      Path in = tempDir.resolve("in.txt");
+      Path out = tempDir.resolve("out.txt");
+      Files.writeString(in, text, StandardCharsets.UTF_8);
+      long characters = text.codePointCount(0, text.length());
+
+      assertThat(StreamingTransform.doubleUp(in, out)).isEqualTo(characters);
+      assertThat(Files.readString(out, StandardCharsets.UTF_8)).isEqualTo(DoubleUp.doubleUp(text));
+
+      StringBuilder expected = new StringBuilder();
+      PrintIndexed.printIndexed(text, expected);
+      assertThat(StreamingTransform.printIndexed(in, out)).isEqualTo(characters);
+      assertThat(Files.readString(out, StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+   }
+
+   @Test
+   @DisplayName("Test plain text")
+   public void testPlain() throws IOException {
+      checkTransforms("");
+      checkTransforms("hello");
+      checkTransforms("caf\u00e9 \u65e5\u672c");
+   }
+
+   @Test
+   @DisplayName("Test characters outside the Basic Multilingual Plane")
+   public void testSupplementary() throws IOException {
+      String smile = "\uD83D\uDE00";
+      checkTransforms(smile);
+      checkTransforms("a" + smile + "b" + smile + smile);
+
+      Path in = tempDir.resolve("smile.txt");
+      Path out = tempDir.resolve("smile.out");
+      Files.writeString(in, "a" + smile, StandardCharsets.UTF_8);
+      StreamingTransform.doubleUp(in, out);
+      assertThat(Files.readString(out, StandardCharsets.UTF_8)).isEqualTo("aa" + smile + smile);
+      StreamingTransform.printIndexed(in, out);
+      assertThat(Files.readString(out, StandardCharsets.UTF_8)).isEqualTo("a1" + smile + "0");
+   }
+
+   @Test
+   @DisplayName("Test a surrogate pair across the end of a chunk")
+   public void testChunkBoundary() throws IOException {
+      String smile = "\uD83D\uDE00";
+      for (int before = CHUNK_SIZE - 2; before <= CHUNK_SIZE; before += 1) {
+         checkTransforms("x".repeat(before) + smile + "y");
+      }
+   }
+}
@@ -0,0 +1,111 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** A list of ints that many threads can add to at once without locking.
+ * Nodes are never modified after they are published, so readers always
+ * see a consistent snapshot of the list as it was when they started.
+ */
+public class ConcurrentIntList implements Iterable<Integer> {
+
+    /** An immutable node. Same shape as IntList, but rest never changes
+     * once the node is visible to other threads. */
+    private static class Node {
+        final int first;
+        Node rest;
+
+        Node(int f) {
+            first = f;
+        }
+    }
+
+    private final AtomicReference<Node> head = new AtomicReference<>();
+
+    /** Adds x to the front of the list. Lock-free: a thread that loses the
+     * race to update head just retries against the new head. */
+    public void addFirst(int x) {
+        Node node = new Node(x);
+        Node oldHead;
+        do {
+            oldHead = head.get();
+            node.rest = oldHead;
+        } while (!head.compareAndSet(oldHead, node));
+    }
+
+    /** Returns true if nothing has been added to this list. */
+    public boolean isEmpty() {
+        return head.get() == null;
+    }
+
+    /** Returns the number of items in a snapshot of this list. */
+    public int size() {
+        int totalSize = 0;
+        for (Node p = head.get(); p != null; p = p.rest) {
+            totalSize += 1;
+        }
+        return totalSize;
+    }
+
+    /** Returns the ith item of a snapshot of this list. */
+    public int get(int i) {
+        Node p = head.get();
+        int remaining = i;
+        while (p != null && remaining > 0) {
+            p = p.rest;
+            remaining -= 1;
+        }
+        if (p == null || remaining < 0) {
+            throw new IndexOutOfBoundsException("Index: " + i);
+        }
+        return p.first;
+    }
+
+    /** Returns the sum of all items in a snapshot of this list. */
+    public int sum() {
+        int total = 0;
+        for (Node p = head.get(); p != null; p = p.rest) {
+            total += p.first;
+        }
+        return total;
+    }
+
+    /** Returns an IntList with the same items as a snapshot of this list,
+     * or null if the list is empty. */
+    public IntList toIntList() {
+        Node p = head.get();
+        if (p == null) {
+            return null;
+        }
+        IntList L = new IntList(p.first, null);
+        IntList current = L;
+        for (p = p.rest; p != null; p = p.rest) {
+            current.rest = new IntList(p.first, null);
+            current = current.rest;
+        }
+        return L;
+    }
+
+    /** Returns an iterator over a snapshot of this list. Every call to next
+     * finishes in a bounded number of steps no matter what writers do. */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private Node p = head.get();
+
+            @Override
+            public boolean hasNext() {
+                return p != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (p == null) {
+                    throw new NoSuchElementException();
+                }
+                int item = p.first;
+                p = p.rest;
+                return item;
+            }
+        };
+    }
+}
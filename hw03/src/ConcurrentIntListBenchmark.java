@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/** Compares addFirst throughput of ConcurrentIntList against an IntList
+ * guarded by a single lock. Run with: java ConcurrentIntListBenchmark [threads] [addsPerThread]
+ */
+public class ConcurrentIntListBenchmark {
+
+    /** Runs task on the given number of threads at once and returns the
+     * elapsed time in nanoseconds. */
+    private static long timeThreads(int numThreads, Runnable task) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i += 1) {
+            threads.add(new Thread(task));
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long lockFree(int numThreads, int addsPerThread) throws InterruptedException {
+        ConcurrentIntList L = new ConcurrentIntList();
+        return timeThreads(numThreads, () -> {
+            for (int i = 0; i < addsPerThread; i += 1) {
+                L.addFirst(i);
+            }
+        });
+    }
+
+    private static long synchronizedList(int numThreads, int addsPerThread) throws InterruptedException {
+        IntList L = new IntList(0, null);
+        return timeThreads(numThreads, () -> {
+            for (int i = 0; i < addsPerThread; i += 1) {
+                synchronized (L) {
+                    L.addFirst(i);
+                }
+            }
+        });
+    }
+
+    private static void report(String name, int totalAdds, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-14s %8.1f ms  %8.2f M adds/s%n", name, seconds * 1000, totalAdds / seconds / 1e6);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int addsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int totalAdds = numThreads * addsPerThread;
+
+        // A few untimed rounds so both versions are JIT compiled before we measure.
+        for (int i = 0; i < 3; i += 1) {
+            lockFree(numThreads, addsPerThread / 10);
+            synchronizedList(numThreads, addsPerThread / 10);
+        }
+
+        System.out.println(numThreads + " threads, " + addsPerThread + " adds each");
+        report("lock-free", totalAdds, lockFree(numThreads, addsPerThread));
+        report("synchronized", totalAdds, synchronizedList(numThreads, addsPerThread));
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.function.IntConsumer;
+
 public class IntList {
     int first;
     IntList rest;
@@ -54,15 +56,22 @@ public class IntList {
      * Returns the sum of all elements in the IntList.
      */
     public int sum() {
-        // Optional: Fill in this code
-        return 0;
+        int total = 0;
+        for (IntList p = this; p != null; p = p.rest) {
+            total += p.first;
+        }
+        return total;
     }
 
     /**
      * Destructively adds x to the end of the list.
      */
     public void addLast(int x) {
-        // Optional: Fill in this code
+        IntList p = this;
+        while (p.rest != null) {
+            p = p.rest;
+        }
+        p.rest = new IntList(x, null);
     }
 
     /**
@@ -72,6 +81,136 @@ public class IntList {
      * be destructive.
      */
     public void addFirst(int x) {
-        // Optional: Fill in this code
+        rest = new IntList(first, rest);
+        first = x;
+    }
+
+    /*
+     * =================================================================
+     * CYCLE-SAFE METHODS
+     * =================================================================
+     */
+
+    /**
+     * Returns the number of items in the cycle reachable from this list,
+     * or 0 if the list ends in null. Uses Brent's algorithm, so it takes
+     * linear time and constant extra memory.
+     */
+    public int cycleLength() {
+        IntList tortoise = this;
+        IntList hare = rest;
+        int power = 1;
+        int length = 1;
+        while (hare != tortoise) {
+            if (hare == null) {
+                return 0;
+            }
+            if (power == length) {
+                tortoise = hare;
+                power *= 2;
+                length = 0;
+            }
+            hare = hare.rest;
+            length += 1;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the index of the first item that is part of a cycle,
+     * or -1 if the list ends in null.
+     */
+    public int cycleStart() {
+        int length = cycleLength();
+        if (length == 0) {
+            return -1;
+        }
+        // Start the hare one cycle length ahead; the two pointers then
+        // meet exactly at the first node of the cycle.
+        IntList tortoise = this;
+        IntList hare = this;
+        for (int i = 0; i < length; i += 1) {
+            hare = hare.rest;
+        }
+        int start = 0;
+        while (tortoise != hare) {
+            tortoise = tortoise.rest;
+            hare = hare.rest;
+            start += 1;
+        }
+        return start;
+    }
+
+    /** Throws an IllegalStateException describing the cycle if this list has one. */
+    private void checkNoCycle() {
+        int length = cycleLength();
+        if (length > 0) {
+            throw new IllegalStateException("IntList has a cycle of length "
+                    + length + " starting at item " + cycleStart());
+        }
+    }
+
+    /** Returns the size of the list, or throws IllegalStateException if it has a cycle. */
+    public int checkedSize() {
+        checkNoCycle();
+        return iterativeSize();
+    }
+
+    /** Returns the sum of the list, or throws IllegalStateException if it has a cycle. */
+    public int checkedSum() {
+        checkNoCycle();
+        return sum();
+    }
+
+    /**
+     * Passes each item to action in order, or throws IllegalStateException
+     * before passing any if the list has a cycle.
+     */
+    public void checkedForEach(IntConsumer action) {
+        checkNoCycle();
+        for (IntList p = this; p != null; p = p.rest) {
+            action.accept(p.first);
+        }
+    }
+
+    /**
+     * Returns the ith item of this IntList, or throws
+     * IndexOutOfBoundsException if the list is too short. Never walks
+     * more than i nodes, so it is safe to call on a cyclic list.
+     */
+    public int checkedGet(int i) {
+        IntList p = this;
+        for (int j = 0; j < i && p != null; j += 1) {
+            p = p.rest;
+        }
+        if (i < 0 || p == null) {
+            throw new IndexOutOfBoundsException("Index " + i + " is out of bounds");
+        }
+        return p.first;
+    }
+
+    /**
+     * Returns the list as a String like "(1, 2, 3)". If the list has a
+     * cycle, each item is printed once, followed by a note about the cycle.
+     */
+    @Override
+    public String toString() {
+        int length = cycleLength();
+        int toPrint = length == 0 ? Integer.MAX_VALUE : cycleStart() + length;
+
+        StringBuilder sb = new StringBuilder("(");
+        IntList p = this;
+        for (int i = 0; i < toPrint && p != null; i += 1) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(p.first);
+            p = p.rest;
+        }
+        if (length > 0) {
+            sb.append("... (cycle exists) ...");
+        }
+        sb.append(")");
+        return sb.toString();
     }
 }
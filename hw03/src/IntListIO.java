@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/** Reads and writes IntLists in a compact binary format.
+ *
+ * A file holds the number of items followed by each item's difference from
+ * the item before it (the first item is compared against 0). Every number is
+ * zigzag encoded so small negative differences stay small, then written as a
+ * varint: 7 bits per byte, with the high bit set on every byte but the last.
+ * Lists of small or slowly changing numbers take one or two bytes per item.
+ */
+public class IntListIO {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Writes L to the given file, replacing anything already there.
+     * A null L is written as the empty list. Throws IllegalStateException
+     * if L has a cycle. */
+    public static void write(IntList L, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            putVarint(buffer, L == null ? 0 : L.checkedSize());
+
+            int previous = 0;
+            for (IntList p = L; p != null; p = p.rest) {
+                // A varint is at most 5 bytes, so make room before each item.
+                if (buffer.remaining() < 5) {
+                    drain(buffer, channel);
+                }
+                putVarint(buffer, zigzag(p.first - previous));
+                previous = p.first;
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    /** Returns the IntList stored in the given file, or null if it is empty. */
+    public static IntList read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            channel.read(buffer);
+            buffer.flip();
+
+            int size = getVarint(buffer);
+            IntList L = null;
+            IntList last = null;
+            int previous = 0;
+            for (int i = 0; i < size; i += 1) {
+                if (buffer.remaining() < 5) {
+                    buffer.compact();
+                    channel.read(buffer);
+                    buffer.flip();
+                }
+                previous += unzigzag(getVarint(buffer));
+                IntList node = new IntList(previous, null);
+                if (last == null) {
+                    L = node;
+                } else {
+                    last.rest = node;
+                }
+                last = node;
+            }
+            return L;
+        }
+    }
+
+    /** Returns a read-only view of the list stored in the given file. The
+     * file is memory mapped and decoded as it is iterated, so no IntList
+     * nodes are created. */
+    public static MappedIntList map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedIntList(buffer);
+        }
+    }
+
+    /** A list stored in a memory mapped file. */
+    public static class MappedIntList implements Iterable<Integer> {
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int itemsStart;
+
+        private MappedIntList(ByteBuffer buffer) {
+            this.buffer = buffer;
+            size = getVarint(buffer);
+            itemsStart = buffer.position();
+        }
+
+        /** Returns the number of items in the list. */
+        public int size() {
+            return size;
+        }
+
+        /** Returns the sum of all items in the list. */
+        public int sum() {
+            int total = 0;
+            for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+                total += it.nextInt();
+            }
+            return total;
+        }
+
+        /** Returns an iterator that decodes items straight out of the mapped file. */
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            // Each iterator gets its own position into the shared mapping.
+            ByteBuffer view = buffer.duplicate();
+            view.position(itemsStart);
+            return new PrimitiveIterator.OfInt() {
+                private int remaining = size;
+                private int previous = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    remaining -= 1;
+                    previous += unzigzag(getVarint(view));
+                    return previous;
+                }
+            };
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int zigzag(int x) {
+        return (x << 1) ^ (x >> 31);
+    }
+
+    private static int unzigzag(int x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+
+    private static void putVarint(ByteBuffer buffer, int x) {
+        while ((x & ~0x7F) != 0) {
+            buffer.put((byte) ((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        buffer.put((byte) x);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int x = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            x |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return x;
+    }
+}
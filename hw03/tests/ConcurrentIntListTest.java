@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ConcurrentIntListTest {
+
+    @Test
+    @Order(0)
+    @DisplayName("Test single-threaded addFirst")
+    public void testAddFirst() {
+        ConcurrentIntList L = new ConcurrentIntList();
+        assertThat(L.isEmpty()).isTrue();
+        assertThat(L.toIntList()).isNull();
+
+        L.addFirst(3);
+        L.addFirst(2);
+        L.addFirst(1);
+
+        assertThat(L.size()).isEqualTo(3);
+        assertThat(L.get(0)).isEqualTo(1);
+        assertThat(L.get(2)).isEqualTo(3);
+        IndexOutOfBoundsException thrown = assertThrows(IndexOutOfBoundsException.class, () -> L.get(5));
+        assertThat(thrown.getMessage()).contains("5");
+        thrown = assertThrows(IndexOutOfBoundsException.class, () -> L.get(-1));
+        assertThat(thrown.getMessage()).contains("-1");
+        assertThat(L.sum()).isEqualTo(6);
+        assertThat(IntListRequiredTests.checkEquals(L.toIntList(), IntListRequiredTests.of(1, 2, 3))).isTrue();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test iterator sees a snapshot")
+    public void testIteratorSnapshot() {
+        ConcurrentIntList L = new ConcurrentIntList();
+        L.addFirst(2);
+        L.addFirst(1);
+
+        PrimitiveIterator.OfInt it = L.iterator();
+        L.addFirst(0);
+
+        assertThat(it.nextInt()).isEqualTo(1);
+        assertThat(it.nextInt()).isEqualTo(2);
+        assertThat(it.hasNext()).isFalse();
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Stress test many threads calling addFirst")
+    public void testConcurrentAddFirst() throws InterruptedException {
+        int numThreads = 8;
+        int addsPerThread = 50_000;
+        ConcurrentIntList L = new ConcurrentIntList();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Thread t adds t, t + numThreads, t + 2 * numThreads, ... so every
+        // item is distinct and we can tell which thread added it.
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t += 1) {
+            int id = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < addsPerThread; i += 1) {
+                    L.addFirst(id + i * numThreads);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertThat(L.size()).isEqualTo(numThreads * addsPerThread);
+
+        // Nothing lost or duplicated, and each thread's items are in
+        // reverse order of when that thread added them.
+        boolean[] seen = new boolean[numThreads * addsPerThread];
+        int[] lastSeen = new int[numThreads];
+        Arrays.fill(lastSeen, Integer.MAX_VALUE);
+        for (PrimitiveIterator.OfInt it = L.iterator(); it.hasNext(); ) {
+            int item = it.nextInt();
+            if (seen[item]) {
+                fail("Item " + item + " appears twice");
+            }
+            seen[item] = true;
+            int id = item % numThreads;
+            if (item > lastSeen[id]) {
+                fail("Items from thread " + id + " are out of order");
+            }
+            lastSeen[id] = item;
+        }
+    }
+}
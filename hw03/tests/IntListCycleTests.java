@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class IntListCycleTests {
+
+    /** Returns an IntList of the given integers whose last node points back
+     * to the node at index start. */
+    private static IntList cyclic(int start, int... nums) {
+        IntList L = IntListRequiredTests.of(nums);
+        IntList last = L;
+        while (last.rest != null) {
+            last = last.rest;
+        }
+        IntList target = L;
+        for (int i = 0; i < start; i += 1) {
+            target = target.rest;
+        }
+        last.rest = target;
+        return L;
+    }
+
+    @Test
+    @Order(0)
+    @DisplayName("Test acyclic lists")
+    public void testAcyclic() {
+        IntList L = IntListRequiredTests.of(1, 2, 3, 4);
+        assertThat(L.cycleLength()).isEqualTo(0);
+        assertThat(L.cycleStart()).isEqualTo(-1);
+        assertThat(L.checkedSize()).isEqualTo(4);
+        assertThat(L.checkedSum()).isEqualTo(10);
+        assertThat(L.toString()).isEqualTo("(1, 2, 3, 4)");
+
+        IntList single = new IntList(7, null);
+        assertThat(single.cycleLength()).isEqualTo(0);
+        assertThat(single.checkedSize()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test cycle length and start")
+    public void testCycleLengthAndStart() {
+        IntList selfLoop = cyclic(0, 5);
+        assertThat(selfLoop.cycleLength()).isEqualTo(1);
+        assertThat(selfLoop.cycleStart()).isEqualTo(0);
+
+        IntList L = cyclic(2, 1, 2, 3, 4, 5);
+        assertThat(L.cycleLength()).isEqualTo(3);
+        assertThat(L.cycleStart()).isEqualTo(2);
+
+        IntList whole = cyclic(0, 1, 2, 3, 4, 5, 6, 7);
+        assertThat(whole.cycleLength()).isEqualTo(7);
+        assertThat(whole.cycleStart()).isEqualTo(0);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test checked methods fail fast on cycles")
+    public void testCheckedMethods() {
+        IntList L = cyclic(1, 1, 2, 3);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, L::checkedSize);
+        assertThat(e.getMessage()).contains("length 2");
+        assertThat(e.getMessage()).contains("item 1");
+        assertThrows(IllegalStateException.class, L::checkedSum);
+
+        List<Integer> seen = new ArrayList<>();
+        e = assertThrows(IllegalStateException.class, () -> L.checkedForEach(seen::add));
+        assertThat(e.getMessage()).contains("length 2");
+        assertThat(seen).isEmpty();
+        IntListRequiredTests.of(4, 5, 6).checkedForEach(seen::add);
+        assertThat(seen).containsExactly(4, 5, 6);
+
+        assertThat(L.checkedGet(3)).isEqualTo(2);
+        assertThat(L.toString()).isEqualTo("(1, 2, 3... (cycle exists) ...)");
+        assertThrows(IndexOutOfBoundsException.class, () -> IntListRequiredTests.of(1, 2).checkedGet(2));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test cycle detection on a long list")
+    public void testLongList() {
+        IntList L = new IntList(0, null);
+        IntList last = L;
+        for (int i = 1; i < 1_000_000; i += 1) {
+            L = new IntList(i, L);
+        }
+        assertThat(L.checkedSize()).isEqualTo(1_000_000);
+
+        last.rest = L;
+        assertThat(L.cycleLength()).isEqualTo(1_000_000);
+        assertThat(L.cycleStart()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class IntListIOTests {
+
+    @TempDir
+    Path tempDir;
+
+    /** Writes L to a file, then checks that read and map both give back L. */
+    private void checkRoundTrip(IntList L) throws IOException {
+        Path file = tempDir.resolve("list.bin");
+        IntListIO.write(L, file);
+
+        // Compare iteratively; checkEquals would overflow the stack on long lists.
+        IntList result = IntListIO.read(file);
+        int index = 0;
+        for (IntList p = L, q = result; p != null || q != null; p = p.rest, q = q.rest) {
+            if (p == null || q == null || p.first != q.first) {
+                fail("Lists differ at item " + index + " after a round trip");
+            }
+            index += 1;
+        }
+
+        IntListIO.MappedIntList mapped = IntListIO.map(file);
+        int expectedSize = L == null ? 0 : L.iterativeSize();
+        assertThat(mapped.size()).isEqualTo(expectedSize);
+        IntList p = L;
+        for (PrimitiveIterator.OfInt it = mapped.iterator(); it.hasNext(); ) {
+            assertThat(it.nextInt()).isEqualTo(p.first);
+            p = p.rest;
+        }
+        assertThat(p).isNull();
+    }
+
+    @Test
+    @Order(0)
+    @DisplayName("Test small and empty lists")
+    public void testSmallLists() throws IOException {
+        checkRoundTrip(null);
+        checkRoundTrip(IntListRequiredTests.of(5));
+        checkRoundTrip(IntListRequiredTests.of(1, 2, 3, 2, 1));
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test extreme values")
+    public void testExtremeValues() throws IOException {
+        checkRoundTrip(IntListRequiredTests.of(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                0, -1, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test a large list built like IntListMystery")
+    public void testLargeList() throws IOException {
+        Random r = new Random(829);
+        IntList L = null;
+        for (int i = 0; i < 200_000; i += 1) {
+            L = new IntList(r.nextInt(0, 800), L);
+        }
+        checkRoundTrip(L);
+
+        // Items below 800 change by less than 2^10, so each takes at most two bytes.
+        assertThat(Files.size(tempDir.resolve("list.bin"))).isAtMost(2L * 200_000 + 5);
+        assertThat(IntListIO.map(tempDir.resolve("list.bin")).sum()).isEqualTo(L.sum());
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Advances many independent simulators on a fixed number of threads.
+ *
+ * Each world has a budget of ticks. Worlds wait in one shared queue, and a
+ * thread takes the world at the front, ticks it up to slice times and puts
+ * it at the back if it has budget left, so every world gets a turn before
+ * any world gets two. Worlds seeded with setSeed end up the same no matter
+ * which threads ran them.
+ */
+public class BatchScheduler implements AutoCloseable {
+    public static final int DEFAULT_SLICE = 16;
+
+    /** One simulator in the batch and what it has used so far. */
+    public static class World {
+        public final String name;
+        public final ParticleSimulator sim;
+        public final long budget;
+        private long ticksRun;
+        private long turns;
+        private long nanos;
+
+        private World(String name, ParticleSimulator sim, long budget) {
+            this.name = name;
+            this.sim = sim;
+            this.budget = budget;
+        }
+
+        /** Returns how many ticks this world has run. */
+        public synchronized long ticksRun() {
+            return ticksRun;
+        }
+
+        /** Returns how many times a thread picked this world up. */
+        public synchronized long turns() {
+            return turns;
+        }
+
+        /** Returns the time spent ticking this world, in nanoseconds. */
+        public synchronized long nanos() {
+            return nanos;
+        }
+
+        /** Returns true once the world has used its whole budget. */
+        public synchronized boolean done() {
+            return ticksRun >= budget;
+        }
+
+        /** Runs up to slice ticks and returns how many ran. Only one thread
+         * has a world at a time, so the lock is never contended. */
+        private synchronized int runSlice(int slice) {
+            int n = (int) Math.min(slice, budget - ticksRun);
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i += 1) {
+                sim.tick();
+            }
+            nanos += System.nanoTime() - start;
+            ticksRun += n;
+            turns += 1;
+            return n;
+        }
+    }
+
+    private final int numThreads;
+    private final int slice;
+    private final ExecutorService pool;
+    private final List<World> worlds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<World> ready = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder totalTicks = new LongAdder();
+    private final LongAdder totalCellTicks = new LongAdder();
+    private long wallNanos;
+
+    public BatchScheduler(int numThreads) {
+        this(numThreads, DEFAULT_SLICE);
+    }
+
+    /** Creates a scheduler with numThreads threads that tick a world at most
+     * slice times per turn. */
+    public BatchScheduler(int numThreads, int slice) {
+        if (numThreads < 1 || slice < 1) {
+            throw new IllegalArgumentException("numThreads and slice must be positive");
+        }
+        this.numThreads = numThreads;
+        this.slice = slice;
+        pool = Executors.newFixedThreadPool(numThreads);
+    }
+
+    /** Adds a world that may run budget more ticks. Must not be called while runAll is running. */
+    public World add(String name, ParticleSimulator sim, long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget must not be negative");
+        }
+        World world = new World(name, sim, budget);
+        worlds.add(world);
+        return world;
+    }
+
+    /** Returns every world in the order they were added. */
+    public List<World> worlds() {
+        return worlds;
+    }
+
+    /** Runs every world until its budget is used up, and waits for them all. */
+    public void runAll() throws InterruptedException {
+        for (World world : worlds) {
+            if (!world.done()) {
+                ready.add(world);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < numThreads; i += 1) {
+            workers.add(pool.submit(this::work));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            ready.clear();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            wallNanos += System.nanoTime() - start;
+        }
+    }
+
+    /** Takes turns on ready worlds until there are none left. A world that is
+     * being ticked isn't in the queue, but the thread ticking it puts it back,
+     * so a thread can stop as soon as it finds the queue empty. */
+    private void work() {
+        World world;
+        while ((world = ready.poll()) != null) {
+            int n = world.runSlice(slice);
+            totalTicks.add(n);
+            totalCellTicks.add((long) n * world.sim.width * world.sim.height);
+            if (!world.done()) {
+                ready.add(world);
+            }
+        }
+    }
+
+    /** Returns the number of ticks run across all worlds. */
+    public long totalTicks() {
+        return totalTicks.sum();
+    }
+
+    /** Returns the wall-clock time spent in runAll, in seconds. */
+    public double seconds() {
+        return wallNanos / 1e9;
+    }
+
+    /** Returns ticks per second across all worlds while runAll was running. */
+    public double ticksPerSecond() {
+        return totalTicks() / seconds();
+    }
+
+    /** Returns cells updated per second across all worlds while runAll was running. */
+    public double cellsPerSecond() {
+        return totalCellTicks.sum() / seconds();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d worlds, %d ticks in %.2f s on %d threads (%.0f ticks/s, %.3g cells/s)",
+                worlds.size(), totalTicks(), seconds(), numThreads, ticksPerSecond(), cellsPerSecond());
+    }
+
+    /** Runs a parameter sweep of small seeded worlds with different amounts of sand. */
+    public static void main(String[] args) throws InterruptedException {
+        int numWorlds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+
+        try (BatchScheduler scheduler = new BatchScheduler(numThreads)) {
+            for (int i = 0; i < numWorlds; i += 1) {
+                ParticleSimulator sim = new ParticleSimulator(32, 32);
+                sim.setSeed(i);
+                for (int x = 0; x < sim.width; x += 1) {
+                    sim.set(x, 0, ParticleFlavor.BARRIER);
+                    if (x % (1 + i % 8) == 0) {
+                        sim.set(x, sim.height - 1, ParticleFlavor.SAND);
+                        sim.set(x, sim.height / 2, ParticleFlavor.WATER);
+                    }
+                }
+                scheduler.add("world " + i, sim, ticks);
+            }
+            scheduler.runAll();
+            System.out.println(scheduler);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Reads back a file written by DeltaFileWriter, one tick at a time. */
+public class DeltaFileReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+
+    public final int width;
+    public final int height;
+
+    private final FileChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean endOfFile;
+
+    public DeltaFileReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        in.flip();
+        fill(12);
+        if (in.remaining() < 12 || in.getInt() != DeltaFileWriter.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a delta file");
+        }
+        width = in.getInt();
+        height = in.getInt();
+    }
+
+    /** Passes the next tick's changes to sink, in the order they happened,
+     * then calls sink.endTick. Returns false if there are no more ticks. */
+    public boolean readTick(DeltaSink sink) throws IOException {
+        fill(DeltaFileWriter.MAX_HEADER);
+        if (!in.hasRemaining()) {
+            return false;
+        }
+        long tick = getVarlong(in);
+        int changes = getVarint(in);
+        for (int i = 0; i < changes; i += 1) {
+            fill(11);
+            int cell = getVarint(in);
+            int flavors = in.get();
+            int lifespan = getVarint(in) - 1;
+            sink.cellChanged(cell, FLAVORS[(flavors >> 4) & 0xF], FLAVORS[flavors & 0xF], lifespan);
+        }
+        sink.endTick(tick);
+        return true;
+    }
+
+    /** Continues reading from the given file offset, which must be the
+     * start of a tick as reported by DeltaFileWriter.position. */
+    public void seek(long offset) throws IOException {
+        channel.position(offset);
+        in.clear();
+        in.flip();
+        endOfFile = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Reads more of the file until at least n bytes are buffered or the file ends. */
+    private void fill(int n) throws IOException {
+        if (in.remaining() >= n || endOfFile) {
+            return;
+        }
+        in.compact();
+        while (in.position() < n) {
+            if (channel.read(in) == -1) {
+                endOfFile = true;
+                break;
+            }
+        }
+        in.flip();
+    }
+
+    private static long getVarlong(ByteBuffer buffer) {
+        long x = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            x |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return x;
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int x = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            x |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return x;
+    }
+}
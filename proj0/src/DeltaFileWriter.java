@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** A DeltaSink that writes a simulator's changes to a file, so replays and
+ * remote viewers get data in proportion to activity rather than board size.
+ *
+ * The file starts with MAGIC, the width and the height as 4-byte ints. Each
+ * tick is then its number and its number of changes, followed by one record
+ * per change: the cell index, a byte holding the old flavor in its high four
+ * bits and the new flavor in its low four bits, and the new lifespan plus 1.
+ * Apart from the flavor byte, every number is written as a varint (the
+ * tick number as a 64-bit one).
+ */
+public class DeltaFileWriter implements DeltaSink, Closeable {
+    public static final int MAGIC = 0x50444c54;
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Longest possible tick header: a 10-byte varint for the tick and a
+     * 5-byte one for the change count. */
+    static final int MAX_HEADER = 15;
+
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Records for the current tick, held back until its change count is known. */
+    private ByteBuffer tickRecords = ByteBuffer.allocate(4096);
+    private int tickChanges;
+
+    /** Creates a writer for a board of the given size, replacing any existing file. */
+    public DeltaFileWriter(Path file, int width, int height) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out.putInt(MAGIC).putInt(width).putInt(height);
+    }
+
+    @Override
+    public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+        // A record is at most 11 bytes; grow rarely, by doubling.
+        if (tickRecords.remaining() < 11) {
+            ByteBuffer bigger = ByteBuffer.allocate(tickRecords.capacity() * 2);
+            tickRecords.flip();
+            bigger.put(tickRecords);
+            tickRecords = bigger;
+        }
+        putVarint(tickRecords, cell);
+        tickRecords.put((byte) (oldFlavor.ordinal() << 4 | newFlavor.ordinal()));
+        putVarint(tickRecords, lifespan + 1);
+        tickChanges += 1;
+    }
+
+    @Override
+    public void endTick(long tick) {
+        try {
+            if (out.remaining() < MAX_HEADER) {
+                drain();
+            }
+            putVarlong(out, tick);
+            putVarint(out, tickChanges);
+
+            tickRecords.flip();
+            while (tickRecords.hasRemaining()) {
+                if (!out.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(out.remaining(), tickRecords.remaining());
+                out.put(tickRecords.slice(tickRecords.position(), n));
+                tickRecords.position(tickRecords.position() + n);
+            }
+            tickRecords.clear();
+            tickChanges = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Returns the file offset at which the next tick will start. */
+    public long position() throws IOException {
+        return channel.position() + out.position();
+    }
+
+    /** Writes out anything buffered and closes the file. */
+    @Override
+    public void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    static void putVarlong(ByteBuffer buffer, long x) {
+        while ((x & ~0x7FL) != 0) {
+            buffer.put((byte) ((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        buffer.put((byte) x);
+    }
+
+    static void putVarint(ByteBuffer buffer, int x) {
+        while ((x & ~0x7F) != 0) {
+            buffer.put((byte) ((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        buffer.put((byte) x);
+    }
+}
@@ -0,0 +1,48 @@
+/** Receives every change the simulator makes to its cells, one tick at a time. */
+public interface DeltaSink {
+    /** Called whenever the particle at a cell changes flavor or lifespan.
+     * Cells are numbered x * height + y. A cell may change more than once
+     * in a tick; applying the changes in order reproduces the board. */
+    void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan);
+
+    /** Called after the given tick, numbered from 1, has finished. Changes
+     * made with set before a tick are reported as part of that tick. */
+    void endTick(long tick);
+
+    /** Returns this sink with sink taken out of it, or null if nothing is
+     * left. Sinks made by both look inside themselves. */
+    default DeltaSink without(DeltaSink sink) {
+        return this == sink ? null : this;
+    }
+
+    /** Returns a sink that passes everything to first and then to second,
+     * for when more than one thing wants to follow a simulator. */
+    static DeltaSink both(DeltaSink first, DeltaSink second) {
+        return new DeltaSink() {
+            @Override
+            public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+                first.cellChanged(cell, oldFlavor, newFlavor, lifespan);
+                second.cellChanged(cell, oldFlavor, newFlavor, lifespan);
+            }
+
+            @Override
+            public void endTick(long tick) {
+                first.endTick(tick);
+                second.endTick(tick);
+            }
+
+            @Override
+            public DeltaSink without(DeltaSink sink) {
+                DeltaSink newFirst = first.without(sink);
+                DeltaSink newSecond = second.without(sink);
+                if (newFirst == first && newSecond == second) {
+                    return this;
+                }
+                if (newFirst == null || newSecond == null) {
+                    return newFirst == null ? newSecond : newFirst;
+                }
+                return both(newFirst, newSecond);
+            }
+        };
+    }
+}
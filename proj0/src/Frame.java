@@ -0,0 +1,67 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/** An immutable picture of a simulator's board after some tick: one packed
+ * RGB colour per cell, in rows from the bottom of the board up. Frames can
+ * be handed to other threads freely because nothing changes them.
+ */
+public class Frame {
+    public final int width;
+    public final int height;
+    public final long tick;
+    private final int[] rgb;
+
+    private Frame(int width, int height, long tick, int[] rgb) {
+        this.width = width;
+        this.height = height;
+        this.tick = tick;
+        this.rgb = rgb;
+    }
+
+    /** Returns a frame showing the simulator's board as it is now. */
+    public static Frame of(ParticleSimulator sim) {
+        int[] rgb = new int[sim.width * sim.height];
+        for (int y = 0; y < sim.height; y += 1) {
+            for (int x = 0; x < sim.width; x += 1) {
+                rgb[y * sim.width + x] = sim.particles[x][y].color().getRGB();
+            }
+        }
+        return new Frame(sim.width, sim.height, sim.ticks(), rgb);
+    }
+
+    /** Returns the packed RGB colour (as in Color.getRGB) of the cell at (x, y). */
+    public int rgb(int x, int y) {
+        return rgb[y * width + x];
+    }
+
+    /** Returns the colour of the cell at (x, y). */
+    public Color color(int x, int y) {
+        return new Color(rgb(x, y), true);
+    }
+
+    /** Returns the frame as an image, with the top of the board at the top. */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += 1) {
+            image.setRGB(0, height - 1 - y, width, 1, rgb, y * width, width);
+        }
+        return image;
+    }
+
+    /** Returns the frame as 3 bytes (red, green, blue) per cell, top row
+     * first, which is what video encoders call rgb24 raw video. */
+    public byte[] toRgb24() {
+        byte[] bytes = new byte[width * height * 3];
+        int i = 0;
+        for (int y = height - 1; y >= 0; y -= 1) {
+            for (int x = 0; x < width; x += 1) {
+                int color = rgb[y * width + x];
+                bytes[i] = (byte) (color >> 16);
+                bytes[i + 1] = (byte) (color >> 8);
+                bytes[i + 2] = (byte) color;
+                i += 3;
+            }
+        }
+        return bytes;
+    }
+}
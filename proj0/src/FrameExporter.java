@@ -0,0 +1,193 @@
+import javax.imageio.ImageIO;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Saves pictures of a headless simulation every few ticks.
+ *
+ * The ticking thread only copies the board's colours into a Frame; turning
+ * frames into files happens on a pool of background threads. PNG mode writes
+ * one frame-&lt;tick&gt;.png per frame. RAW mode appends every frame, in order,
+ * to frames.rgb as rgb24 raw video, which an encoder can turn into a movie:
+ *
+ *     ffmpeg -f rawvideo -pix_fmt rgb24 -s WIDTHxHEIGHT -r 30 -i frames.rgb out.mp4
+ *
+ * At most maxPending frames wait to be written at once, so a simulation
+ * that outruns the disk is slowed down instead of filling the heap.
+ */
+public class FrameExporter implements Closeable {
+    public static final String RAW_FILE = "frames.rgb";
+    public static final int DEFAULT_MAX_PENDING = 16;
+
+    public enum Format { PNG, RAW }
+
+    private final Path dir;
+    private final Format format;
+    private final int every;
+    private final ExecutorService encoders;
+    /** Writes raw frames one at a time, in the order they were captured. */
+    private final ExecutorService writer;
+    private final FileChannel raw;
+    private final Semaphore pending;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public FrameExporter(Path dir, Format format, int every, int numThreads) throws IOException {
+        this(dir, format, every, numThreads, DEFAULT_MAX_PENDING);
+    }
+
+    /** Creates an exporter that saves a frame into dir whenever the tick
+     * count is a multiple of every, encoding on numThreads threads. */
+    public FrameExporter(Path dir, Format format, int every, int numThreads, int maxPending) throws IOException {
+        if (every < 1 || numThreads < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("every, numThreads and maxPending must be positive");
+        }
+        this.dir = dir;
+        this.format = format;
+        this.every = every;
+        Files.createDirectories(dir);
+        encoders = Executors.newFixedThreadPool(numThreads);
+        pending = new Semaphore(maxPending);
+        if (format == Format.RAW) {
+            writer = Executors.newSingleThreadExecutor();
+            raw = FileChannel.open(dir.resolve(RAW_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } else {
+            writer = null;
+            raw = null;
+        }
+    }
+
+    /** Returns the file a PNG frame for the given tick is saved to. */
+    public Path pngFile(long tick) {
+        return dir.resolve(String.format("frame-%08d.png", tick));
+    }
+
+    /** Call after each tick. Captures a frame if this tick is due for one and
+     * hands it to the background threads. */
+    public void afterTick(ParticleSimulator sim) {
+        if (sim.ticks() % every == 0) {
+            export(Frame.of(sim));
+        }
+    }
+
+    /** Queues a frame to be written, waiting first if too many are queued already. */
+    public void export(Frame frame) {
+        checkFailure();
+        pending.acquireUninterruptibly();
+        try {
+            if (format == Format.PNG) {
+                encoders.execute(() -> run(() -> {
+                    ImageIO.write(frame.toImage(), "png", pngFile(frame.tick).toFile());
+                    finished();
+                }));
+            } else {
+                Future<byte[]> bytes = encoders.submit(frame::toRgb24);
+                writer.execute(() -> run(() -> {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes.get());
+                    while (buffer.hasRemaining()) {
+                        raw.write(buffer);
+                    }
+                    finished();
+                }));
+            }
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    /** Runs a background task, remembering the first thing that goes wrong
+     * so the ticking thread can report it. */
+    private void run(Task task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+            pending.release();
+        }
+    }
+
+    private void finished() {
+        written.incrementAndGet();
+        pending.release();
+    }
+
+    private void checkFailure() {
+        Throwable t = failure.get();
+        if (t instanceof IOException e) {
+            throw new UncheckedIOException(e);
+        } else if (t != null) {
+            throw new RuntimeException("Frame export failed", t);
+        }
+    }
+
+    /** Returns how many frames have been completely written so far. */
+    public long framesWritten() {
+        return written.get();
+    }
+
+    /** Waits for every queued frame to be written, then stops the background threads. */
+    @Override
+    public void close() throws IOException {
+        try {
+            encoders.shutdown();
+            encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (writer != null) {
+                writer.shutdown();
+                writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing frames", e);
+        } finally {
+            if (raw != null) {
+                raw.close();
+            }
+        }
+        checkFailure();
+    }
+
+    /** Runs a fountain-and-plants world with no window and saves every 10th tick. */
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of(args.length > 0 ? args[0] : "frames");
+        Format format = args.length > 1 ? Format.valueOf(args[1]) : Format.PNG;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        ParticleSimulator sim = new ParticleSimulator(256, 256);
+        for (int x = 16; x < sim.width; x += 32) {
+            sim.set(x, sim.height - 1, ParticleFlavor.FOUNTAIN);
+            sim.set(x + 8, 40, ParticleFlavor.PLANT);
+        }
+        sim.set(100, 40, ParticleFlavor.FIRE);
+
+        long start = System.nanoTime();
+        try (FrameExporter exporter = new FrameExporter(dir, format, 10,
+                Runtime.getRuntime().availableProcessors())) {
+            for (int t = 0; t < ticks; t += 1) {
+                sim.tick();
+                exporter.afterTick(sim);
+            }
+            double tickSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d ticks in %.2f s%n", ticks, tickSeconds);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("frames written to %s after %.2f s%n", dir.toAbsolutePath(), seconds);
+    }
+}
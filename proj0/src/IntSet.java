@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/** A set of non-negative ints, stored in one int array with open addressing,
+ * so adding, removing and looking up cells never allocates (except to grow). */
+public class IntSet {
+    private static final int FREE = -1;
+
+    private int[] slots;
+    private int size;
+
+    public IntSet() {
+        slots = new int[16];
+        Arrays.fill(slots, FREE);
+    }
+
+    /** Returns the number of ints in the set. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if the set holds value. */
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+            if (slots[i] == FREE) {
+                return false;
+            }
+        }
+    }
+
+    /** Adds value and returns true, or returns false if it was there already. */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("IntSet only holds non-negative ints");
+        }
+        int mask = slots.length - 1;
+        int i = slot(value);
+        while (slots[i] != FREE) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        size += 1;
+        if (size * 2 > slots.length) {
+            resize(slots.length * 2);
+        }
+        return true;
+    }
+
+    /** Removes value and returns true, or returns false if it wasn't there. */
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        int i = slot(value);
+        while (slots[i] != value) {
+            if (slots[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // Shift later members of the run back so lookups never stop early at the hole.
+        int hole = i;
+        for (int j = (hole + 1) & mask; slots[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(slots[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        slots[hole] = FREE;
+        size -= 1;
+        return true;
+    }
+
+    /** Removes everything. */
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        size = 0;
+    }
+
+    /** Returns the members in increasing order. */
+    public int[] toSortedArray() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int value : slots) {
+            if (value != FREE) {
+                result[n] = value;
+                n += 1;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int slot(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+    }
+
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        Arrays.fill(slots, FREE);
+        size = 0;
+        for (int value : old) {
+            if (value != FREE) {
+                add(value);
+            }
+        }
+    }
+}
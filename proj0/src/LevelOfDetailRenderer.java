@@ -0,0 +1,290 @@
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.awt.Color;
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+
+/** Draws a simulator's board at a level of detail that matches the window,
+ * so a huge world costs about one square per pixel instead of one per cell.
+ *
+ * Level 0 is the board itself and level k holds the dominant flavor of
+ * each 2^k by 2^k block: the most common flavor among the four level k - 1
+ * blocks it covers, with ties going to anything but EMPTY so thin lines of
+ * particles stay visible. The renderer follows the simulator as a DeltaSink
+ * and only recomputes the blocks above cells that changed. It must be used
+ * on the thread that ticks the simulator.
+ */
+public class LevelOfDetailRenderer implements DeltaSink {
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+    private static final Color[] COLORS = new Color[FLAVORS.length];
+
+    static {
+        for (ParticleFlavor flavor : FLAVORS) {
+            COLORS[flavor.ordinal()] = new Particle(flavor).color();
+        }
+    }
+
+    private final int simHeight;
+    /** Flavor ordinals of every block at each level, in rows from the bottom. */
+    private final byte[][] levels;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+
+    /** Blocks at each level whose children changed since the last update. */
+    private final int[][] dirty;
+    private final int[] dirtyCounts;
+    private final boolean[][] isDirty;
+
+    /** The part of the board in view: a square viewSize cells across
+     * with its bottom left corner at (viewX, viewY). */
+    private double viewX;
+    private double viewY;
+    private double viewSize;
+
+    /** Builds the pyramid for sim's current board and starts following its changes. */
+    public LevelOfDetailRenderer(ParticleSimulator sim) {
+        simHeight = sim.height;
+        int numLevels = 1;
+        while ((sim.width - 1) >> (numLevels - 1) > 0 || (sim.height - 1) >> (numLevels - 1) > 0) {
+            numLevels += 1;
+        }
+
+        levels = new byte[numLevels][];
+        levelWidths = new int[numLevels];
+        levelHeights = new int[numLevels];
+        dirty = new int[numLevels][];
+        dirtyCounts = new int[numLevels];
+        isDirty = new boolean[numLevels][];
+        for (int level = 0; level < numLevels; level += 1) {
+            levelWidths[level] = ((sim.width - 1) >> level) + 1;
+            levelHeights[level] = ((sim.height - 1) >> level) + 1;
+            int size = levelWidths[level] * levelHeights[level];
+            levels[level] = new byte[size];
+            isDirty[level] = new boolean[size];
+            dirty[level] = new int[16];
+        }
+
+        for (int x = 0; x < sim.width; x += 1) {
+            for (int y = 0; y < sim.height; y += 1) {
+                levels[0][y * sim.width + x] = (byte) sim.particles[x][y].flavor.ordinal();
+            }
+        }
+        for (int level = 1; level < numLevels; level += 1) {
+            for (int i = 0; i < levels[level].length; i += 1) {
+                levels[level][i] = dominant(level, i);
+            }
+        }
+
+        viewSize = Math.max(sim.width, sim.height);
+        sim.addDeltaSink(this);
+    }
+
+    /** Returns the number of levels, the last of which is a single block. */
+    public int numLevels() {
+        return levels.length;
+    }
+
+    /** Returns the dominant flavor of the block at (bx, by) on the given level. */
+    public ParticleFlavor dominant(int level, int bx, int by) {
+        update();
+        return FLAVORS[levels[level][by * levelWidths[level] + bx]];
+    }
+
+    @Override
+    public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+        int x = cell / simHeight;
+        int y = cell % simHeight;
+        levels[0][y * levelWidths[0] + x] = (byte) newFlavor.ordinal();
+        if (levels.length > 1) {
+            markDirty(1, x >> 1, y >> 1);
+        }
+    }
+
+    @Override
+    public void endTick(long tick) {
+    }
+
+    private void markDirty(int level, int bx, int by) {
+        int i = by * levelWidths[level] + bx;
+        if (isDirty[level][i]) {
+            return;
+        }
+        isDirty[level][i] = true;
+        if (dirtyCounts[level] == dirty[level].length) {
+            dirty[level] = Arrays.copyOf(dirty[level], dirty[level].length * 2);
+        }
+        dirty[level][dirtyCounts[level]] = i;
+        dirtyCounts[level] += 1;
+    }
+
+    /** Recomputes every block above a changed cell, one level at a time. */
+    private void update() {
+        for (int level = 1; level < levels.length; level += 1) {
+            int width = levelWidths[level];
+            for (int k = 0; k < dirtyCounts[level]; k += 1) {
+                int i = dirty[level][k];
+                isDirty[level][i] = false;
+                byte flavor = dominant(level, i);
+                if (flavor != levels[level][i] && level + 1 < levels.length) {
+                    markDirty(level + 1, (i % width) >> 1, (i / width) >> 1);
+                }
+                levels[level][i] = flavor;
+            }
+            dirtyCounts[level] = 0;
+        }
+    }
+
+    /** Returns the most common flavor among the (up to) four children of
+     * block i on the given level, preferring non-EMPTY flavors on ties. */
+    private byte dominant(int level, int i) {
+        int width = levelWidths[level];
+        int childWidth = levelWidths[level - 1];
+        int childHeight = levelHeights[level - 1];
+        int cx = (i % width) * 2;
+        int cy = (i / width) * 2;
+        byte[] children = levels[level - 1];
+
+        byte best = (byte) ParticleFlavor.EMPTY.ordinal();
+        int bestCount = 0;
+        for (int k = 0; k < 4; k += 1) {
+            int x = cx + (k & 1);
+            int y = cy + (k >> 1);
+            if (x >= childWidth || y >= childHeight) {
+                continue;
+            }
+            byte flavor = children[y * childWidth + x];
+            int count = 0;
+            for (int j = 0; j < 4; j += 1) {
+                int x2 = cx + (j & 1);
+                int y2 = cy + (j >> 1);
+                if (x2 < childWidth && y2 < childHeight && children[y2 * childWidth + x2] == flavor) {
+                    count += 1;
+                }
+            }
+            boolean empty = flavor == ParticleFlavor.EMPTY.ordinal();
+            boolean bestEmpty = best == ParticleFlavor.EMPTY.ordinal();
+            if (count > bestCount || (count == bestCount && bestEmpty && !empty)) {
+                best = flavor;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /** Moves the view by the given number of cells. */
+    public void pan(double dx, double dy) {
+        viewX += dx;
+        viewY += dy;
+    }
+
+    /** Zooms in by the given factor (or out, if it is below 1), keeping the
+     * centre of the view in place. */
+    public void zoom(double factor) {
+        double size = Math.max(1, viewSize / factor);
+        viewX += (viewSize - size) / 2;
+        viewY += (viewSize - size) / 2;
+        viewSize = size;
+    }
+
+    /** Returns how many cells across the view currently is. */
+    public double viewSize() {
+        return viewSize;
+    }
+
+    /** Returns the coarsest level whose blocks are still no bigger than a
+     * pixel when the view is drawn pixels wide. */
+    public int levelFor(int pixels) {
+        int level = 0;
+        while (level + 1 < levels.length && (double) (1 << (level + 1)) <= viewSize / pixels) {
+            level += 1;
+        }
+        return level;
+    }
+
+    /** Draws the view into a window that is pixels wide, one filled rectangle
+     * per horizontal run of same-flavored blocks. Does not call StdDraw.show. */
+    public void draw(int pixels) {
+        update();
+        int level = levelFor(pixels);
+        int block = 1 << level;
+        int width = levelWidths[level];
+        int height = levelHeights[level];
+        byte[] flavors = levels[level];
+        byte empty = (byte) ParticleFlavor.EMPTY.ordinal();
+
+        StdDraw.setXscale(viewX, viewX + viewSize);
+        StdDraw.setYscale(viewY, viewY + viewSize);
+        StdDraw.clear(StdDraw.BLACK);
+
+        int fromX = Math.max(0, (int) Math.floor(viewX / block));
+        int toX = Math.min(width, (int) Math.ceil((viewX + viewSize) / block));
+        int fromY = Math.max(0, (int) Math.floor(viewY / block));
+        int toY = Math.min(height, (int) Math.ceil((viewY + viewSize) / block));
+        for (int by = fromY; by < toY; by += 1) {
+            int row = by * width;
+            int bx = fromX;
+            while (bx < toX) {
+                byte flavor = flavors[row + bx];
+                int end = bx + 1;
+                while (end < toX && flavors[row + end] == flavor) {
+                    end += 1;
+                }
+                if (flavor != empty) {
+                    StdDraw.setPenColor(COLORS[flavor]);
+                    StdDraw.filledRectangle((bx + end) * block / 2.0, (by + 0.5) * block,
+                            (end - bx) * block / 2.0, block / 2.0);
+                }
+                bx = end;
+            }
+        }
+    }
+
+    /** Runs a large world in a window. Arrow keys pan, + and - zoom, and the
+     * usual letters pick what the mouse paints. */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int pixels = 1024;
+        ParticleSimulator sim = new ParticleSimulator(size, size);
+        LevelOfDetailRenderer renderer = new LevelOfDetailRenderer(sim);
+
+        StdDraw.setCanvasSize(pixels, pixels);
+        StdDraw.enableDoubleBuffering();
+        ParticleFlavor nextParticleFlavor = ParticleFlavor.SAND;
+        while (true) {
+            while (StdDraw.hasNextKeyTyped()) {
+                char key = StdDraw.nextKeyTyped();
+                if (key == '+' || key == '=') {
+                    renderer.zoom(2);
+                } else if (key == '-') {
+                    renderer.zoom(0.5);
+                } else if (ParticleSimulator.LETTER_TO_PARTICLE.containsKey(key)) {
+                    nextParticleFlavor = ParticleSimulator.LETTER_TO_PARTICLE.get(key);
+                }
+            }
+            double step = renderer.viewSize() / 32;
+            if (StdDraw.isKeyPressed(KeyEvent.VK_LEFT)) {
+                renderer.pan(-step, 0);
+            }
+            if (StdDraw.isKeyPressed(KeyEvent.VK_RIGHT)) {
+                renderer.pan(step, 0);
+            }
+            if (StdDraw.isKeyPressed(KeyEvent.VK_DOWN)) {
+                renderer.pan(0, -step);
+            }
+            if (StdDraw.isKeyPressed(KeyEvent.VK_UP)) {
+                renderer.pan(0, step);
+            }
+            if (StdDraw.isMousePressed()) {
+                int x = (int) StdDraw.mouseX();
+                int y = (int) StdDraw.mouseY();
+                if (sim.validIndex(x, y)) {
+                    sim.set(x, y, nextParticleFlavor);
+                }
+            }
+
+            sim.tick();
+            renderer.draw(pixels);
+            StdDraw.show();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/** A hashed timing wheel of the cells whose particles die on each tick.
+ *
+ * Every tick maps to one of a fixed number of slots (tick mod slots). A slot
+ * holds entries for that tick and, if lifespans are longer than the wheel,
+ * for later laps around it; drain only takes the entries for the tick asked
+ * for. Scheduling and draining cost time in proportion to the entries in one
+ * slot, no matter how many particles are alive.
+ *
+ * Each slot is a linked list threaded through one shared pool of entries,
+ * and drained entries go back on a free list. The pool only grows when more
+ * entries are waiting than ever before, so a board whose births come in
+ * waves stops allocating once it has seen its biggest wave, however the
+ * waves line up with the slots. Entries stay in the order they were
+ * scheduled, which is mostly scan order, so the due cells come out as a
+ * few increasing runs that drain merges in spare space of its own.
+ */
+public class LifespanWheel {
+    private static final int NONE = -1;
+
+    private final int mask;
+    /** The first and last entry in each slot, or NONE. */
+    private final int[] heads;
+    private final int[] tails;
+    /** The pool: each entry's cell, due tick, and the next entry in its
+     * slot or on the free list. */
+    private int[] cells = new int[64];
+    private long[] ticks = new long[64];
+    private int[] next = new int[64];
+    /** The first free entry, or NONE, and how much of the pool has ever been used. */
+    private int free = NONE;
+    private int used;
+    private int size;
+
+    /** Cells due on the tick most recently drained, in increasing order. */
+    private int[] due = new int[16];
+    private int dueSize;
+    /** Scratch space for sorting due, always the same length. */
+    private int[] spare = new int[16];
+
+    /** Creates a wheel with at least the given number of slots. Lifespans up
+     * to that many ticks never wait more than one lap. */
+    public LifespanWheel(int minSlots) {
+        int slots = Integer.highestOneBit(Math.max(1, minSlots - 1)) << 1;
+        mask = slots - 1;
+        heads = new int[slots];
+        tails = new int[slots];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    /** Schedules cell to be due on the given tick. */
+    public void schedule(int cell, long tick) {
+        int entry = free;
+        if (entry != NONE) {
+            free = next[entry];
+        } else {
+            if (used == cells.length) {
+                cells = Arrays.copyOf(cells, used * 2);
+                ticks = Arrays.copyOf(ticks, used * 2);
+                next = Arrays.copyOf(next, used * 2);
+            }
+            entry = used;
+            used += 1;
+        }
+        int slot = (int) (tick & mask);
+        cells[entry] = cell;
+        ticks[entry] = tick;
+        next[entry] = NONE;
+        if (tails[slot] == NONE) {
+            heads[slot] = entry;
+        } else {
+            next[tails[slot]] = entry;
+        }
+        tails[slot] = entry;
+        size += 1;
+    }
+
+    /** Removes every cell due on the given tick, makes them available in
+     * increasing order through due, and returns how many there are. */
+    public int drain(long tick) {
+        int slot = (int) (tick & mask);
+        dueSize = 0;
+        int previous = NONE;
+        int entry = heads[slot];
+        while (entry != NONE) {
+            int following = next[entry];
+            if (ticks[entry] == tick) {
+                addDue(cells[entry]);
+                if (previous == NONE) {
+                    heads[slot] = following;
+                } else {
+                    next[previous] = following;
+                }
+                next[entry] = free;
+                free = entry;
+            } else {
+                previous = entry;
+            }
+            entry = following;
+        }
+        tails[slot] = previous;
+        size -= dueSize;
+        sortDue();
+        return dueSize;
+    }
+
+    /** Returns the ith cell due on the tick most recently drained. */
+    public int due(int i) {
+        return due[i];
+    }
+
+    /** Returns how many cells are due on the tick most recently drained. */
+    public int dueSize() {
+        return dueSize;
+    }
+
+    /** Adds a cell to the cells due on the tick most recently drained,
+     * keeping them in order. For particles that turn out to be due on the
+     * tick that is already running. */
+    public void insertDue(int cell) {
+        addDue(cell);
+        int i = dueSize - 1;
+        while (i > 0 && due[i - 1] > cell) {
+            due[i] = due[i - 1];
+            i -= 1;
+        }
+        due[i] = cell;
+    }
+
+    /** Returns the number of entries waiting in the wheel. */
+    public int size() {
+        return size;
+    }
+
+    private void addDue(int cell) {
+        if (dueSize == due.length) {
+            due = Arrays.copyOf(due, dueSize * 2);
+            spare = new int[due.length];
+        }
+        due[dueSize] = cell;
+        dueSize += 1;
+    }
+
+    /** Sorts due by merging neighboring increasing runs into spare and back
+     * until only one run is left. Arrays.sort would allocate for the same
+     * thing once there are a few thousand cells. */
+    private void sortDue() {
+        int runs = 2;
+        while (runs > 1) {
+            runs = 0;
+            int start = 0;
+            while (start < dueSize) {
+                int middle = runEnd(start);
+                int end = middle < dueSize ? runEnd(middle) : middle;
+                merge(start, middle, end);
+                runs += 1;
+                start = end;
+            }
+            int[] sorted = spare;
+            spare = due;
+            due = sorted;
+        }
+    }
+
+    /** Returns the end of the increasing run of due starting at start. */
+    private int runEnd(int start) {
+        int end = start + 1;
+        while (end < dueSize && due[end - 1] <= due[end]) {
+            end += 1;
+        }
+        return end;
+    }
+
+    /** Merges due[start, middle) and due[middle, end) into spare[start, end). */
+    private void merge(int start, int middle, int end) {
+        int i = start;
+        int j = middle;
+        for (int k = start; k < end; k += 1) {
+            if (j == end || (i < middle && due[i] <= due[j])) {
+                spare[k] = due[i];
+                i += 1;
+            } else {
+                spare[k] = due[j];
+                j += 1;
+            }
+        }
+    }
+}
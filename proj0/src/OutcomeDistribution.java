@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Estimates how likely each final board is when a starting board is
+ * ticked a fixed number of times, by running many independent seeded
+ * trials in parallel. Boards are told apart by a 64-bit hash, so a trial
+ * never builds a String unless it finds a board nobody has seen yet.
+ */
+public class OutcomeDistribution {
+    /** z-score for a 95% confidence interval. */
+    private static final double Z = 1.96;
+
+    /** One distinct final board and how often it came up. */
+    public static class Outcome {
+        public final String board;
+        public final long count;
+        private final long trials;
+
+        private Outcome(String board, long count, long trials) {
+            this.board = board;
+            this.count = count;
+            this.trials = trials;
+        }
+
+        /** Returns the fraction of trials that ended on this board. */
+        public double fraction() {
+            return (double) count / trials;
+        }
+
+        /** Returns the lower end of the 95% Wilson score interval for fraction(). */
+        public double lower() {
+            return center() - halfWidth();
+        }
+
+        /** Returns the upper end of the 95% Wilson score interval for fraction(). */
+        public double upper() {
+            return center() + halfWidth();
+        }
+
+        private double center() {
+            double p = fraction();
+            return (p + Z * Z / (2.0 * trials)) / (1 + Z * Z / trials);
+        }
+
+        private double halfWidth() {
+            double p = fraction();
+            double n = trials;
+            return Z * Math.sqrt(p * (1 - p) / n + Z * Z / (4 * n * n)) / (1 + Z * Z / n);
+        }
+    }
+
+    /** Counts and example boards gathered by one worker. */
+    private static class Tally {
+        final Map<Long, long[]> counts = new HashMap<>();
+        final Map<Long, String> boards = new HashMap<>();
+    }
+
+    private final Map<Long, Outcome> outcomes;
+    private final long trials;
+
+    private OutcomeDistribution(Map<Long, Outcome> outcomes, long trials) {
+        this.outcomes = outcomes;
+        this.trials = trials;
+    }
+
+    /** Runs trials independent copies of board for the given number of
+     * ticks, spread over numThreads threads. Trial i always uses the same
+     * seed, so the result depends only on seed and not on numThreads. */
+    public static OutcomeDistribution run(String board, int ticks, long trials, long seed, int numThreads)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Tally>> futures = new ArrayList<>();
+            long perTask = Math.max(1, trials / (numThreads * 4L));
+            for (long start = 0; start < trials; start += perTask) {
+                long from = start;
+                long to = Math.min(trials, start + perTask);
+                futures.add(pool.submit(() -> runTrials(board, ticks, seed, from, to)));
+            }
+
+            Map<Long, long[]> counts = new HashMap<>();
+            Map<Long, String> boards = new HashMap<>();
+            for (Future<Tally> future : futures) {
+                Tally tally = future.get();
+                for (Map.Entry<Long, long[]> entry : tally.counts.entrySet()) {
+                    counts.computeIfAbsent(entry.getKey(), k -> new long[1])[0] += entry.getValue()[0];
+                }
+                tally.boards.forEach(boards::putIfAbsent);
+            }
+
+            Map<Long, Outcome> outcomes = new HashMap<>();
+            for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+                long hash = entry.getKey();
+                outcomes.put(hash, new Outcome(boards.get(hash), entry.getValue()[0], trials));
+            }
+            return new OutcomeDistribution(outcomes, trials);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Runs trials [from, to) on the calling thread. */
+    private static Tally runTrials(String board, int ticks, long seed, long from, long to) {
+        Tally tally = new Tally();
+        for (long i = from; i < to; i += 1) {
+            Particle.setSeed(ParticleSimulator.mix(seed + i));
+            ParticleSimulator sim = ParticleSimulator.fromBoardString(board);
+            for (int t = 0; t < ticks; t += 1) {
+                sim.tick();
+            }
+            long hash = sim.hash();
+            long[] count = tally.counts.get(hash);
+            if (count == null) {
+                count = new long[1];
+                tally.counts.put(hash, count);
+                tally.boards.put(hash, sim.toString().trim());
+            }
+            count[0] += 1;
+        }
+        return tally;
+    }
+
+    /** Returns the total number of trials. */
+    public long trials() {
+        return trials;
+    }
+
+    /** Returns every distinct outcome, most common first. */
+    public List<Outcome> outcomes() {
+        List<Outcome> result = new ArrayList<>(outcomes.values());
+        result.sort((a, b) -> Long.compare(b.count, a.count));
+        return result;
+    }
+
+    /** Returns the outcome for the given board, or null if no trial ended on it. */
+    public Outcome outcome(String board) {
+        return outcomes.get(ParticleSimulator.fromBoardString(board).hash());
+    }
+
+    /** Returns how many trials ended on the given board. */
+    public long count(String board) {
+        Outcome outcome = outcome(board);
+        return outcome == null ? 0 : outcome.count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(outcomes.size()).append(" outcomes from ").append(trials).append(" trials\n");
+        for (Outcome outcome : outcomes()) {
+            sb.append(String.format("%9d  %6.3f%%  [%6.3f%%, %6.3f%%]%n",
+                    outcome.count, 100 * outcome.fraction(), 100 * outcome.lower(), 100 * outcome.upper()));
+            sb.append(outcome.board).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String board = """
+            s...s
+            s.w..
+            bbbbb
+            """;
+        long trials = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        OutcomeDistribution distribution = run(board, 1, trials, 61, numThreads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(distribution);
+        System.out.printf("%d trials on %d threads in %.2f s (%.0f trials/s)%n",
+                trials, numThreads, seconds, trials / seconds);
+    }
+}
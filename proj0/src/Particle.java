@@ -1,11 +1,13 @@
-import edu.princeton.cs.algs4.StdRandom;
-
 import java.awt.*;
 import java.util.Map;
+import java.util.Random;
 
 public class Particle {
     public ParticleFlavor flavor;
     public int lifespan;
+    /** The tick on which this particle dies, if its simulator tracks lifespans
+     * with a LifespanWheel instead of counting them down; -1 otherwise. */
+    public long expiresAt;
 
     public static final int PLANT_LIFESPAN = 150;
     public static final int FLOWER_LIFESPAN = 75;
@@ -15,33 +17,170 @@ public class Particle {
                    ParticleFlavor.PLANT, PLANT_LIFESPAN,
                    ParticleFlavor.FIRE, FIRE_LIFESPAN);
 
+    private static final Color PLANT_COLOR = new Color(0, 255, 0);
+    private static final Color FIRE_COLOR = new Color(255, 0, 0);
+    private static final Color FLOWER_COLOR = new Color(255, 141, 161);
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** Chance that fire spreads to each flammable neighbor on a tick. */
+    public static final double BURN_CHANCE = 0.4;
+
+    /** Each thread gets its own random number generator, so simulators on
+     * different threads neither contend on nor disturb each other's draws. */
+    private static final ThreadLocal<Random> RANDOM = ThreadLocal.withInitial(Random::new);
+
+    /** Returns the calling thread's random number generator, so a tile of a
+     * TiledSimulation can pass the rest of a tick's draws on to the next tile. */
+    static Random random() {
+        return RANDOM.get();
+    }
+
+    /** Replaces the calling thread's random number generator. */
+    static void setRandom(Random random) {
+        RANDOM.set(random);
+    }
+
     public Particle(ParticleFlavor flavor) {
         this.flavor = flavor;
-        lifespan = -1;
+        lifespan = LIFESPANS.getOrDefault(flavor, -1);
+        expiresAt = -1;
+    }
+
+    /** Seeds the random number generator used by particles on the calling
+     * thread, making every following tick on this thread reproducible. */
+    public static void setSeed(long seed) {
+        RANDOM.get().setSeed(seed);
     }
 
     public Color color() {
-        if (flavor == ParticleFlavor.EMPTY) {
-            return Color.BLACK;
-        }
-        return Color.GRAY;
+        return switch (flavor) {
+            case EMPTY -> Color.BLACK;
+            case SAND -> Color.YELLOW;
+            case BARRIER -> Color.GRAY;
+            case WATER -> Color.BLUE;
+            case FOUNTAIN -> Color.CYAN;
+            case PLANT -> PLANT_COLOR;
+            case FIRE -> FIRE_COLOR;
+            case FLOWER -> FLOWER_COLOR;
+        };
     }
 
     public void moveInto(Particle other) {
+        other.flavor = flavor;
+        other.lifespan = lifespan;
+        other.expiresAt = expiresAt;
+        die();
+    }
+
+    /** Turns this particle into an empty cell. */
+    public void die() {
+        flavor = ParticleFlavor.EMPTY;
+        lifespan = -1;
+        expiresAt = -1;
     }
 
     public void fall(Map<Direction, Particle> neighbors) {
+        Particle below = neighbors.get(Direction.DOWN);
+        if (below != null && below.flavor == ParticleFlavor.EMPTY) {
+            moveInto(below);
+        }
     }
 
     public void flow(Map<Direction, Particle> neighbors) {
+        // Left, right and staying put are equally likely.
+        int choice = RANDOM.get().nextInt(3);
+        Particle target = switch (choice) {
+            case 0 -> neighbors.get(Direction.LEFT);
+            case 1 -> neighbors.get(Direction.RIGHT);
+            default -> null;
+        };
+        if (target != null && target.flavor == ParticleFlavor.EMPTY) {
+            moveInto(target);
+        }
     }
 
     public void grow(Map<Direction, Particle> neighbors) {
+        // Up, left, right and not growing at all are equally likely.
+        int choice = RANDOM.get().nextInt(4);
+        Particle target = switch (choice) {
+            case 0 -> neighbors.get(Direction.UP);
+            case 1 -> neighbors.get(Direction.LEFT);
+            case 2 -> neighbors.get(Direction.RIGHT);
+            default -> null;
+        };
+        if (target != null && target.flavor == ParticleFlavor.EMPTY) {
+            target.flavor = flavor;
+            target.lifespan = LIFESPANS.get(flavor);
+            target.expiresAt = -1;
+        }
     }
 
     public void burn(Map<Direction, Particle> neighbors) {
+        for (Direction d : DIRECTIONS) {
+            Particle neighbor = neighbors.get(d);
+            if (neighbor == null) {
+                continue;
+            }
+            if (neighbor.flavor == ParticleFlavor.PLANT || neighbor.flavor == ParticleFlavor.FLOWER) {
+                if (RANDOM.get().nextDouble() < BURN_CHANCE) {
+                    neighbor.flavor = ParticleFlavor.FIRE;
+                    neighbor.lifespan = FIRE_LIFESPAN;
+                    neighbor.expiresAt = -1;
+                }
+            }
+        }
     }
 
     public void action(Map<Direction, Particle> neighbors) {
+        // Particles with a lifespan age first, and do nothing on the tick they die.
+        if (!age()) {
+            act(neighbors);
+        }
+    }
+
+    /** Counts down this particle's lifespan, if it has one, and returns true
+     * if that killed it. */
+    public boolean age() {
+        if (lifespan > 0) {
+            lifespan -= 1;
+            if (lifespan == 0) {
+                die();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Does whatever this particle's flavor does on a tick, without aging. */
+    public void act(Map<Direction, Particle> neighbors) {
+        boolean emptyBelow = neighbors.get(Direction.DOWN).flavor == ParticleFlavor.EMPTY;
+        switch (flavor) {
+            case SAND -> fall(neighbors);
+            case WATER -> {
+                if (emptyBelow) {
+                    fall(neighbors);
+                } else {
+                    flow(neighbors);
+                }
+            }
+            case PLANT, FLOWER -> {
+                if (emptyBelow) {
+                    fall(neighbors);
+                } else {
+                    grow(neighbors);
+                }
+            }
+            case FIRE -> burn(neighbors);
+            case FOUNTAIN -> {
+                if (emptyBelow) {
+                    Particle below = neighbors.get(Direction.DOWN);
+                    below.flavor = ParticleFlavor.WATER;
+                    below.lifespan = -1;
+                    below.expiresAt = -1;
+                }
+            }
+            default -> { }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 import edu.princeton.cs.algs4.StdDraw;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +21,64 @@ public class ParticleSimulator {
     public int width;
     public int height;
 
+    private static final int NUM_FLAVORS = ParticleFlavor.values().length;
+
+    /** Zobrist hash of the flavor in every cell, kept up to date by tick and set. */
+    private long hash;
+    /** Zobrist hash of the lifespan of every living particle the wheel isn't
+     * tracking, kept up to date the same way. */
+    private long lifespanHash;
+    /** For the particles the wheel tracks, the sums of weight(cell) * expiresAt
+     * and of weight(cell). Expiries stay put while the tick count moves on, so
+     * the remaining lives are hashed through expirySum - weightSum * tickCount,
+     * which changes every tick without touching every particle. */
+    private long expirySum;
+    private long weightSum;
+
+    /** Number of ticks run so far. */
+    private long tickCount;
+    /** If seeded, every tick reseeds the particles' random numbers from seed and the tick number. */
+    private boolean seeded;
+    private long seed;
+    /** Where changes are reported, or null if nobody is listening. */
+    private DeltaSink deltaSink;
+
+    /** Schedules deaths when lifespans are tracked by expiry tick, or null
+     * when every living particle counts its lifespan down each tick. */
+    private LifespanWheel wheel;
+    /** Number of the tick being run, or of the next tick between ticks. */
+    private long now = 1;
+    /** Index of the cell being updated, or -1 between ticks. */
+    private int scanCell = -1;
+    /** Position in the wheel's due cells that the scan has reached. */
+    private int duePosition;
+
+    /** Offsets of a cell and its four neighbors: the cells an action can change. */
+    private static final int[] AFFECTED_DX = {0, 1, -1, 0, 0};
+    private static final int[] AFFECTED_DY = {0, 0, 0, -1, 1};
+    private final ParticleFlavor[] oldFlavors = new ParticleFlavor[AFFECTED_DX.length];
+    private final int[] oldLifespans = new int[AFFECTED_DX.length];
+    private final long[] oldExpiries = new long[AFFECTED_DX.length];
+    /** Neighbors of the cell being updated, filled in again for every cell
+     * so a tick allocates nothing. */
+    private final Map<Direction, Particle> scanNeighbors = new EnumMap<>(Direction.class);
+    /** Stands in for the cells past the edges of the board during a tick. */
+    private final Particle scanSentinel = new Particle(ParticleFlavor.BARRIER);
+
+    /** In frontier mode, the fires that have something to burn and the plants
+     * and flowers that have room to grow or fall; null otherwise. */
+    private IntSet burning;
+    private IntSet growing;
+    /** The same frontiers as one bit per cell. The scan visits cells in
+     * order, so it reads these a word at a time instead of probing the
+     * sets' hash tables for every fire, plant and flower it passes. */
+    private long[] burningBits;
+    private long[] growingBits;
+    /** Replaces the built-in behavior of some flavors; see setRules. */
+    private RuleSet rules;
+    /** Levels water in bulk in liquid mode; null otherwise. */
+    private WaterSolver waterSolver;
+
     public ParticleSimulator(int w, int h) {
         width = w;
         height = h;
@@ -30,6 +90,24 @@ public class ParticleSimulator {
         }
     }
 
+    /** Returns a simulator for a board written the way toString prints one:
+     * one line per row, top row first, one letter from LETTER_TO_PARTICLE per cell. */
+    public static ParticleSimulator fromBoardString(String board) {
+        String[] lines = board.trim().split("\\n");
+        int height = lines.length;
+        int width = lines[0].trim().length();
+
+        ParticleSimulator sim = new ParticleSimulator(width, height);
+        for (int i = 0; i < height; i += 1) {
+            String line = lines[i].trim();
+            for (int x = 0; x < width; x += 1) {
+                int y = height - 1 - i;
+                sim.set(x, y, LETTER_TO_PARTICLE.get(line.charAt(x)));
+            }
+        }
+        return sim;
+    }
+
     public void drawParticles() {
         for (int x = 0; x < width; x += 1) {
             for (int y = 0; y < height; y += 1) {
@@ -40,45 +118,564 @@ public class ParticleSimulator {
     }
 
     public Map<Direction, Particle> getNeighbors(int x, int y) {
-        Particle SENTINEL= new Particle(ParticleFlavor.BARRIER);
+        Map<Direction, Particle> neighbors = new EnumMap<>(Direction.class);
+        fillNeighbors(x, y, neighbors, new Particle(ParticleFlavor.BARRIER));
+        return neighbors;
+    }
 
-        HashMap<Direction, Particle> neighbors = new HashMap<>();
-        if (validIndex(x + 1, y)) {
-            neighbors.put(Direction.RIGHT, particles[x + 1][y]);
-        } else {
-            neighbors.put(Direction.RIGHT, SENTINEL);
+    /** Puts the four neighbors of (x, y) into neighbors, with sentinel
+     * standing in for any that are off the board. */
+    private void fillNeighbors(int x, int y, Map<Direction, Particle> neighbors, Particle sentinel) {
+        neighbors.put(Direction.RIGHT, validIndex(x + 1, y) ? particles[x + 1][y] : sentinel);
+        neighbors.put(Direction.LEFT, validIndex(x - 1, y) ? particles[x - 1][y] : sentinel);
+        neighbors.put(Direction.DOWN, validIndex(x, y - 1) ? particles[x][y - 1] : sentinel);
+        neighbors.put(Direction.UP, validIndex(x, y + 1) ? particles[x][y + 1] : sentinel);
+    }
+
+    public void tick() {
+        startTick();
+        for (int x = 0; x < width; x += 1) {
+            tickColumn(x);
+        }
+        finishTick();
+    }
+
+    /** The first of the three steps of a tick. TileWorker runs them itself
+     * so it can tick only the columns it owns. */
+    void startTick() {
+        if (seeded) {
+            Particle.setSeed(mix(seed + tickCount));
+        }
+        if (waterSolver != null) {
+            waterSolver.settle();
+        }
+        if (wheel != null) {
+            wheel.drain(now);
+            duePosition = 0;
+        }
+    }
+
+    /** Runs the action of every particle in column x, bottom to top. */
+    void tickColumn(int x) {
+        for (int y = 0; y < height; y += 1) {
+            scanCell = x * height + y;
+            if (isIdle(particles[x][y], scanCell)) {
+                continue;
+            }
+            // A rule may have turned the sentinel into something else last time.
+            if (scanSentinel.flavor != ParticleFlavor.BARRIER) {
+                scanSentinel.flavor = ParticleFlavor.BARRIER;
+                scanSentinel.lifespan = -1;
+                scanSentinel.expiresAt = -1;
+            }
+            Map<Direction, Particle> neighbors = scanNeighbors;
+            fillNeighbors(x, y, neighbors, scanSentinel);
+
+            // An action can only change this cell and its four neighbors,
+            // so remember what they held and fix up the hashes afterwards.
+            for (int k = 0; k < AFFECTED_DX.length; k += 1) {
+                int nx = x + AFFECTED_DX[k];
+                int ny = y + AFFECTED_DY[k];
+                if (validIndex(nx, ny)) {
+                    oldFlavors[k] = particles[nx][ny].flavor;
+                    oldLifespans[k] = particles[nx][ny].lifespan;
+                    oldExpiries[k] = particles[nx][ny].expiresAt;
+                }
+            }
+
+            Particle p = particles[x][y];
+            if (wheel == null) {
+                if (!p.age()) {
+                    act(p, neighbors);
+                }
+            } else if (isDue(scanCell) && p.expiresAt == now) {
+                p.die();
+            } else {
+                act(p, neighbors);
+            }
+
+            for (int k = 0; k < AFFECTED_DX.length; k += 1) {
+                int nx = x + AFFECTED_DX[k];
+                int ny = y + AFFECTED_DY[k];
+                schedule(nx, ny, oldFlavors[k], oldExpiries[k]);
+                updateHash(nx, ny, oldFlavors[k], oldLifespans[k], oldExpiries[k]);
+            }
+        }
+    }
+
+    /** Has p do what its flavor does, by the rules if there are any for it. */
+    private void act(Particle p, Map<Direction, Particle> neighbors) {
+        if (rules == null || !rules.apply(p, neighbors)) {
+            p.act(neighbors);
+        }
+    }
+
+    /** The last of the three steps of a tick. */
+    void finishTick() {
+        scanCell = -1;
+        now += 1;
+        tickCount += 1;
+        if (deltaSink != null) {
+            deltaSink.endTick(tickCount);
+        }
+    }
+
+    /** Returns the number of ticks run so far. */
+    public long ticks() {
+        return tickCount;
+    }
+
+    /** Sets the number of ticks run so far, e.g. when restoring a saved board. */
+    void setTicks(long ticks) {
+        tickCount = ticks;
+        now = ticks + 1;
+    }
+
+    /** Switches to tracking lifespans with a LifespanWheel. Each particle's
+     * death tick is worked out once, when it appears or moves, so a tick only
+     * spends time on the particles that die in it, and lifespan fields stop
+     * counting down. Read remaining lifespans with lifespanAt instead. Boards
+     * behave exactly as they would without the wheel. */
+    public void useLifespanWheel() {
+        if (wheel != null) {
+            return;
+        }
+        int longest = 1;
+        for (int lifespan : Particle.LIFESPANS.values()) {
+            longest = Math.max(longest, lifespan);
         }
-        if (validIndex(x - 1, y)) {
-            neighbors.put(Direction.LEFT, particles[x - 1][y]);
+        wheel = new LifespanWheel(longest + 1);
+        rehash();
+    }
+
+    /** Returns true if useLifespanWheel has been called. */
+    public boolean usesLifespanWheel() {
+        return wheel != null;
+    }
+
+    /** Returns the number of ticks the particle at (x, y) has left to live,
+     * or -1 if it doesn't age. */
+    public int lifespanAt(int x, int y) {
+        Particle p = particles[x][y];
+        if (wheel != null && p.expiresAt >= 0) {
+            return (int) (p.expiresAt - tickCount);
+        }
+        return p.lifespan;
+    }
+
+    /** Switches to frontier mode, which also turns on the lifespan wheel.
+     * Fire with nothing flammable next to it can't spread, and a plant or
+     * flower resting on something with no empty cell above or beside it can't
+     * grow, so the simulator keeps the cells that can in two IntSets and the
+     * scan passes over all the others without looking at their neighbors.
+     *
+     * The odds of every outcome stay the same, but idle particles no longer
+     * draw random numbers, so a seeded board takes a different (equally
+     * likely) course than it would outside frontier mode. */
+    public void useFrontiers() {
+        if (burning != null) {
+            return;
+        }
+        useLifespanWheel();
+        burning = new IntSet();
+        growing = new IntSet();
+        burningBits = new long[(width * height + 63) >>> 6];
+        growingBits = new long[burningBits.length];
+        rebuildFrontiers();
+    }
+
+    /** Switches to liquid mode, in which a WaterSolver levels whole bodies
+     * of water before each tick and water that can't move is skipped.
+     * Lakes settle in a few ticks instead of thousands. Water still falls
+     * and flows as before, so this only speeds up what would happen anyway,
+     * but like frontier mode it changes which random numbers get drawn. */
+    public void useLiquidMode() {
+        if (waterSolver == null) {
+            waterSolver = new WaterSolver(this);
+        }
+    }
+
+    /** Returns the water solver in liquid mode, or null. */
+    public WaterSolver waterSolver() {
+        return waterSolver;
+    }
+
+    /** Returns true if useFrontiers has been called. */
+    public boolean usesFrontiers() {
+        return burning != null;
+    }
+
+    /** Returns the cells (numbered x * height + y) of fires next to a plant
+     * or flower. Only kept in frontier mode; do not modify. */
+    public IntSet burningFrontier() {
+        return burning;
+    }
+
+    /** Returns the cells of plants and flowers with an empty cell above,
+     * beside or below them. Only kept in frontier mode; do not modify. */
+    public IntSet growingFrontier() {
+        return growing;
+    }
+
+    private void rebuildFrontiers() {
+        burning.clear();
+        growing.clear();
+        Arrays.fill(burningBits, 0);
+        Arrays.fill(growingBits, 0);
+        for (int x = 0; x < width; x += 1) {
+            for (int y = 0; y < height; y += 1) {
+                updateFrontier(x, y);
+            }
+        }
+    }
+
+    /** Updates the frontiers for a change of flavor at (x, y), which can
+     * move that cell and its four neighbors on or off them. */
+    private void updateFrontiers(int x, int y) {
+        for (int k = 0; k < AFFECTED_DX.length; k += 1) {
+            int nx = x + AFFECTED_DX[k];
+            int ny = y + AFFECTED_DY[k];
+            if (validIndex(nx, ny)) {
+                updateFrontier(nx, ny);
+            }
+        }
+    }
+
+    private void updateFrontier(int x, int y) {
+        int cell = x * height + y;
+        ParticleFlavor flavor = particles[x][y].flavor;
+        if (flavor == ParticleFlavor.FIRE && (isFlammable(x + 1, y) || isFlammable(x - 1, y)
+                || isFlammable(x, y - 1) || isFlammable(x, y + 1))) {
+            burning.add(cell);
+            burningBits[cell >>> 6] |= 1L << cell;
         } else {
-            neighbors.put(Direction.LEFT, SENTINEL);
+            burning.remove(cell);
+            burningBits[cell >>> 6] &= ~(1L << cell);
         }
-        if (validIndex(x, y - 1)) {
-            neighbors.put(Direction.DOWN, particles[x][y - 1]);
+        if ((flavor == ParticleFlavor.PLANT || flavor == ParticleFlavor.FLOWER)
+                && (isEmpty(x + 1, y) || isEmpty(x - 1, y) || isEmpty(x, y - 1) || isEmpty(x, y + 1))) {
+            growing.add(cell);
+            growingBits[cell >>> 6] |= 1L << cell;
         } else {
-            neighbors.put(Direction.DOWN, SENTINEL);
+            growing.remove(cell);
+            growingBits[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    private boolean isFlammable(int x, int y) {
+        if (!validIndex(x, y)) {
+            return false;
+        }
+        ParticleFlavor flavor = particles[x][y].flavor;
+        return flavor == ParticleFlavor.PLANT || flavor == ParticleFlavor.FLOWER;
+    }
+
+    private boolean isEmpty(int x, int y) {
+        return validIndex(x, y) && particles[x][y].flavor == ParticleFlavor.EMPTY;
+    }
+
+    /** Returns true if particle p, in the given cell, would do nothing at
+     * all this tick, so the scan can skip it. Empty cells and barriers never
+     * do anything; in frontier mode, neither does fire, plant or flower off
+     * its frontier unless it dies this tick. Flavors that follow a RuleSet
+     * are never skipped. */
+    private boolean isIdle(Particle p, int cell) {
+        if (rules != null && rules.handles(p.flavor)) {
+            return false;
         }
-        if (validIndex(x, y + 1)) {
-            neighbors.put(Direction.UP, particles[x][y + 1]);
+        return switch (p.flavor) {
+            case EMPTY, BARRIER -> p.lifespan <= 0;
+            case WATER -> waterSolver != null && waterSolver.isStill(cell);
+            case FIRE -> burning != null && !hasBit(burningBits, cell) && !(isDue(cell) && p.expiresAt == now);
+            case PLANT, FLOWER -> growing != null && !hasBit(growingBits, cell) && !(isDue(cell) && p.expiresAt == now);
+            default -> false;
+        };
+    }
+
+    private static boolean hasBit(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /** Returns true if cell is due to expire this tick. Cells are asked
+     * about in increasing order, so this walks the due list only once. */
+    private boolean isDue(int cell) {
+        while (duePosition < wheel.dueSize() && wheel.due(duePosition) < cell) {
+            duePosition += 1;
+        }
+        return duePosition < wheel.dueSize() && wheel.due(duePosition) == cell;
+    }
+
+    /** Puts the particle at (x, y) in the wheel if it was just born or just
+     * moved there. */
+    private void schedule(int x, int y, ParticleFlavor oldFlavor, long oldExpiresAt) {
+        if (wheel == null || !validIndex(x, y)) {
+            return;
+        }
+        Particle p = particles[x][y];
+        if (p.lifespan <= 0) {
+            return;
+        }
+        int cell = x * height + y;
+        if (p.expiresAt < 0) {
+            // Without the wheel, a newborn ages this tick only if the scan
+            // has yet to reach its cell, and it dies on its lifespan-th update.
+            p.expiresAt = cell > scanCell ? now + p.lifespan - 1 : now + p.lifespan;
+        } else if (p.flavor == oldFlavor && p.expiresAt == oldExpiresAt) {
+            return;
+        }
+        if (p.expiresAt == now && scanCell >= 0) {
+            // This tick's due cells were drained already; the scan has yet to reach this one.
+            wheel.insertDue(cell);
         } else {
-            neighbors.put(Direction.UP, SENTINEL);
+            wheel.schedule(cell, p.expiresAt);
         }
-        return neighbors;
     }
 
-    public void tick() {
+    /** Makes every later tick reproducible: before each tick, the random
+     * numbers particles draw are reseeded from seed and the tick number,
+     * so a board restored at any tick continues exactly as the original did. */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /** Returns true if setSeed has been called. */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /** Returns the seed passed to setSeed. */
+    public long seed() {
+        return seed;
+    }
+
+    /** Makes particles of every flavor the rules mention follow those rules
+     * instead of their built-in behavior, or goes back to the built-in
+     * behavior if rules is null. Aging is unaffected. */
+    public void setRules(RuleSet rules) {
+        this.rules = rules;
+    }
+
+    /** Returns the rules given to setRules, or null if there are none. */
+    public RuleSet rules() {
+        return rules;
+    }
+
+    /** Reports every later change to the given sink, or stops reporting if
+     * sink is null. This replaces any sinks already attached; use
+     * addDeltaSink to follow the simulator alongside them. */
+    public void setDeltaSink(DeltaSink sink) {
+        deltaSink = sink;
+    }
+
+    /** Returns the sink changes are reported to, or null if there is none. */
+    public DeltaSink deltaSink() {
+        return deltaSink;
+    }
+
+    /** Reports every later change to sink as well as to any sinks already attached. */
+    public void addDeltaSink(DeltaSink sink) {
+        deltaSink = deltaSink == null ? sink : DeltaSink.both(deltaSink, sink);
+    }
+
+    /** Stops reporting changes to sink, leaving any other sinks attached. */
+    public void removeDeltaSink(DeltaSink sink) {
+        if (deltaSink != null) {
+            deltaSink = deltaSink.without(sink);
+        }
+    }
+
+    /** Puts a new particle of the given flavor at (x, y), keeping the hash up to date.
+     * Code that assigns to particles directly must call rehash afterwards. */
+    public void set(int x, int y, ParticleFlavor flavor) {
+        Particle old = particles[x][y];
+        particles[x][y] = new Particle(flavor);
+        schedule(x, y, old.flavor, old.expiresAt);
+        updateHash(x, y, old.flavor, old.lifespan, old.expiresAt);
+    }
+
+    /** Changes the particle in the given cell (numbered x * height + y, as
+     * DeltaSink does) in place, keeping the hashes up to date. */
+    public void applyChange(int cell, ParticleFlavor flavor, int lifespan) {
+        int x = cell / height;
+        int y = cell % height;
+        Particle p = particles[x][y];
+        ParticleFlavor oldFlavor = p.flavor;
+        int oldLifespan = p.lifespan;
+        long oldExpiresAt = p.expiresAt;
+        p.flavor = flavor;
+        p.lifespan = lifespan;
+        p.expiresAt = -1;
+        schedule(x, y, oldFlavor, oldExpiresAt);
+        updateHash(x, y, oldFlavor, oldLifespan, oldExpiresAt);
+    }
+
+    /** Recomputes the hash from scratch. Only needed after writing to particles directly. */
+    public void rehash() {
+        hash = 0;
+        lifespanHash = 0;
+        expirySum = 0;
+        weightSum = 0;
         for (int x = 0; x < width; x += 1) {
             for (int y = 0; y < height; y += 1) {
-                Map<Direction, Particle> neighbors = getNeighbors(x, y);
-                particles[x][y].action(neighbors);
+                Particle p = particles[x][y];
+                if (wheel != null && p.lifespan > 0 && p.expiresAt < 0) {
+                    schedule(x, y, p.flavor, p.expiresAt);
+                }
+                hash ^= zobristKey(x, y, p.flavor);
+                hashLifespan(x, y, p.lifespan, p.expiresAt, 1);
             }
         }
+        if (burning != null) {
+            rebuildFrontiers();
+        }
+        if (waterSolver != null) {
+            waterSolver = new WaterSolver(this);
+        }
+    }
+
+    /** Returns a 64-bit hash of the flavor in every cell, in constant time.
+     * Lifespans are not included, matching what toString shows. */
+    public long hash() {
+        return hash;
+    }
+
+    /** Returns a 64-bit hash of the flavor and remaining lifespan in every
+     * cell, in constant time. Boards with equal state hashes behave the same
+     * on every later tick, given the same random draws. */
+    public long stateHash() {
+        if (weightSum == 0) {
+            return hash ^ lifespanHash;
+        }
+        return hash ^ lifespanHash ^ mix(expirySum - weightSum * tickCount);
+    }
+
+    /** Returns true if some particle could still do something random on
+     * the next tick, so an unchanged board is not necessarily settled:
+     * water or a plant or flower next to an empty cell, or fire next to
+     * something it can burn. Flavors that follow a RuleSet always count. */
+    public boolean canActRandomly() {
+        for (int x = 0; x < width; x += 1) {
+            for (int y = 0; y < height; y += 1) {
+                ParticleFlavor flavor = particles[x][y].flavor;
+                if (rules != null && flavor != ParticleFlavor.EMPTY && rules.handles(flavor)) {
+                    return true;
+                }
+                boolean canMove = switch (flavor) {
+                    case WATER -> isEmpty(x - 1, y) || isEmpty(x + 1, y) || isEmpty(x, y - 1);
+                    case PLANT, FLOWER -> isEmpty(x - 1, y) || isEmpty(x + 1, y) || isEmpty(x, y - 1)
+                            || isEmpty(x, y + 1);
+                    case FIRE -> isFlammable(x - 1, y) || isFlammable(x + 1, y) || isFlammable(x, y - 1)
+                            || isFlammable(x, y + 1);
+                    default -> false;
+                };
+                if (canMove) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Updates the hashes for whatever changed at (x, y) since it held a
+     * particle with the given flavor, lifespan and expiry, and reports the change. */
+    private void updateHash(int x, int y, ParticleFlavor oldFlavor, int oldLifespan, long oldExpiresAt) {
+        if (!validIndex(x, y)) {
+            return;
+        }
+        Particle current = particles[x][y];
+        boolean lifespanChanged = current.lifespan != oldLifespan || current.expiresAt != oldExpiresAt;
+        if (current.flavor == oldFlavor && !lifespanChanged) {
+            return;
+        }
+        if (current.flavor != oldFlavor) {
+            hash ^= zobristKey(x, y, oldFlavor) ^ zobristKey(x, y, current.flavor);
+            if (burning != null) {
+                updateFrontiers(x, y);
+            }
+            if (waterSolver != null) {
+                waterSolver.cellChanged(x, y, oldFlavor, current.flavor);
+            }
+        }
+        if (lifespanChanged) {
+            hashLifespan(x, y, oldLifespan, oldExpiresAt, -1);
+            hashLifespan(x, y, current.lifespan, current.expiresAt, 1);
+        }
+        if (deltaSink != null) {
+            deltaSink.cellChanged(x * height + y, oldFlavor, current.flavor, current.lifespan);
+        }
+    }
+
+    /** Returns the random-looking key for the given flavor at (x, y). Keys are
+     * computed rather than stored in a table, and EMPTY is always 0, so a new
+     * simulator's hash is 0 and two simulators of the same size share keys. */
+    private long zobristKey(int x, int y, ParticleFlavor flavor) {
+        if (flavor == ParticleFlavor.EMPTY) {
+            return 0;
+        }
+        long cell = (long) x * height + y;
+        return mix(cell * NUM_FLAVORS + flavor.ordinal());
+    }
+
+    /** Adds (sign 1) or removes (sign -1) a particle with the given lifespan
+     * and expiry at (x, y) from the lifespan hashes. Particles that don't age
+     * leave them alone. */
+    private void hashLifespan(int x, int y, int lifespan, long expiresAt, long sign) {
+        if (lifespan <= 0) {
+            return;
+        }
+        long cell = (long) x * height + y;
+        if (expiresAt < 0) {
+            lifespanHash ^= mix((cell << 32 | lifespan) ^ 0x6a09e667f3bcc909L);
+        } else {
+            // Odd, so no weight is zero.
+            long weight = mix(cell ^ 0xbb67ae8584caa73bL) | 1;
+            expirySum += sign * weight * expiresAt;
+            weightSum += sign * weight;
+        }
+    }
+
+    /** Scrambles the bits of z (the SplitMix64 finalizer). */
+    static long mix(long z) {
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     public boolean validIndex(int x, int y) {
         return x >= 0 && x < width && y >= 0 && y < height;
     }
 
+    /** Two simulators are equal if they are the same size and every cell holds
+     * the same flavor. Different hashes settle it immediately, so the cells
+     * are only compared when the boards are almost certainly equal. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ParticleSimulator other)) {
+            return false;
+        }
+        if (width != other.width || height != other.height || hash != other.hash) {
+            return false;
+        }
+        for (int x = 0; x < width; x += 1) {
+            for (int y = 0; y < height; y += 1) {
+                if (particles[x][y].flavor != other.particles[x][y].flavor) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
     @Override
     public String toString() {
         // 1. Build a reverse map to look up characters by Flavor
@@ -102,31 +699,6 @@ public class ParticleSimulator {
     }
 
     static void main() {
-        ParticleSimulator particleSimulator = new ParticleSimulator(150, 150);
-        StdDraw.setXscale(0, particleSimulator.width);
-        StdDraw.setYscale(0, particleSimulator.height);
-        StdDraw.enableDoubleBuffering();
-        StdDraw.clear(StdDraw.BLACK);
-        ParticleFlavor nextParticleFlavor = ParticleFlavor.SAND;
-
-        while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char c = StdDraw.nextKeyTyped();
-                nextParticleFlavor = LETTER_TO_PARTICLE.get(c);
-            }
-
-            if (StdDraw.isMousePressed()) {
-                int x = (int) StdDraw.mouseX();
-                int y = (int) StdDraw.mouseY();
-                if (particleSimulator.validIndex(x, y)) {
-                    particleSimulator.particles[x][y] = new Particle(nextParticleFlavor);
-                }
-            }
-
-            particleSimulator.tick();
-            particleSimulator.drawParticles();
-            StdDraw.show();
-            StdDraw.pause(5);
-        }
+        new SimulationLoop(new ParticleSimulator(150, 150), SimulationLoop.DEFAULT_TICKS_PER_SECOND).runWindow();
     }
 }
@@ -0,0 +1,108 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Records a running simulator so Replay can later jump to any tick.
+ *
+ * A recording is a directory with two files. deltas.bin holds every change,
+ * as written by DeltaFileWriter. keyframes.bin starts with a header (MAGIC,
+ * width, height, keyframe interval and whether the board is seeded as ints,
+ * then the seed and first tick as longs) followed by a full copy of the board
+ * every interval ticks. Each keyframe is its tick, the offset in deltas.bin
+ * where the following tick starts, and a flavor byte and 2-byte lifespan per
+ * cell. Keyframes are all the same size, so finding one is a single read.
+ */
+public class Recorder implements DeltaSink, Closeable {
+    public static final int MAGIC = 0x504b4559;
+    public static final String KEYFRAMES = "keyframes.bin";
+    public static final String DELTAS = "deltas.bin";
+    static final int HEADER_SIZE = 5 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final ParticleSimulator sim;
+    private final int interval;
+    private final long firstTick;
+    private final DeltaFileWriter deltas;
+    private final FileChannel keyframes;
+    private final ByteBuffer frame;
+
+    /** Starts recording sim into dir, with a keyframe every interval ticks.
+     * Call sim.setSeed first if replays should be able to continue ticking
+     * exactly as the original did. */
+    public Recorder(ParticleSimulator sim, Path dir, int interval) throws IOException {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (sim.usesLifespanWheel()) {
+            // Lifespans stop counting down, so the deltas wouldn't say how old anything is.
+            throw new IllegalStateException("Can't record a simulator that uses a lifespan wheel");
+        }
+        this.sim = sim;
+        this.interval = interval;
+        firstTick = sim.ticks();
+        deltas = new DeltaFileWriter(dir.resolve(DELTAS), sim.width, sim.height);
+        keyframes = FileChannel.open(dir.resolve(KEYFRAMES), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        frame = ByteBuffer.allocate(frameSize(sim.width * sim.height));
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(sim.width).putInt(sim.height).putInt(interval)
+                .putInt(sim.isSeeded() ? 1 : 0).putLong(sim.seed()).putLong(firstTick);
+        write(header);
+
+        writeKeyframe(firstTick);
+        sim.addDeltaSink(this);
+    }
+
+    /** Returns the size in bytes of one keyframe for a board with the given number of cells. */
+    static int frameSize(int cells) {
+        return 2 * Long.BYTES + cells * 3;
+    }
+
+    @Override
+    public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+        deltas.cellChanged(cell, oldFlavor, newFlavor, lifespan);
+    }
+
+    @Override
+    public void endTick(long tick) {
+        deltas.endTick(tick);
+        try {
+            if ((tick - firstTick) % interval == 0) {
+                writeKeyframe(tick);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Stops recording and closes both files. */
+    @Override
+    public void close() throws IOException {
+        sim.removeDeltaSink(this);
+        deltas.close();
+        keyframes.close();
+    }
+
+    private void writeKeyframe(long tick) throws IOException {
+        frame.clear();
+        frame.putLong(tick).putLong(deltas.position());
+        for (int x = 0; x < sim.width; x += 1) {
+            for (int y = 0; y < sim.height; y += 1) {
+                Particle p = sim.particles[x][y];
+                frame.put((byte) p.flavor.ordinal()).putShort((short) p.lifespan);
+            }
+        }
+        write(frame);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            keyframes.write(buffer);
+        }
+    }
+}
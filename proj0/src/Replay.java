@@ -0,0 +1,119 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Jumps to any tick of a recording made by Recorder. A seek loads the
+ * nearest keyframe at or before the tick and applies the changes after it,
+ * so it never replays more than one keyframe interval of ticks.
+ */
+public class Replay implements Closeable {
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+
+    public final int width;
+    public final int height;
+    public final int interval;
+
+    private final boolean seeded;
+    private final long seed;
+    private final long firstTick;
+    private final FileChannel keyframes;
+    private final DeltaFileReader deltas;
+    private final ByteBuffer frame;
+
+    public Replay(Path dir) throws IOException {
+        keyframes = FileChannel.open(dir.resolve(Recorder.KEYFRAMES), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(Recorder.HEADER_SIZE);
+        keyframes.read(header, 0);
+        header.flip();
+        if (header.remaining() < Recorder.HEADER_SIZE || header.getInt() != Recorder.MAGIC) {
+            keyframes.close();
+            throw new IOException(dir + " is not a recording");
+        }
+        width = header.getInt();
+        height = header.getInt();
+        interval = header.getInt();
+        seeded = header.getInt() != 0;
+        seed = header.getLong();
+        firstTick = header.getLong();
+
+        deltas = new DeltaFileReader(dir.resolve(Recorder.DELTAS));
+        frame = ByteBuffer.allocate(Recorder.frameSize(width * height));
+    }
+
+    /** Returns the first tick in the recording. */
+    public long firstTick() {
+        return firstTick;
+    }
+
+    /** Returns a new simulator holding the board as it was after the given
+     * tick. If the recording was seeded, ticking the result continues
+     * exactly as the original run did. */
+    public ParticleSimulator seek(long tick) throws IOException {
+        if (tick < firstTick) {
+            throw new IllegalArgumentException("Recording starts at tick " + firstTick);
+        }
+        ParticleSimulator sim = new ParticleSimulator(width, height);
+        long keyframe = loadKeyframe(sim, (tick - firstTick) / interval);
+
+        DeltaSink apply = new DeltaSink() {
+            @Override
+            public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+                sim.applyChange(cell, newFlavor, lifespan);
+            }
+
+            @Override
+            public void endTick(long t) {
+                sim.setTicks(t);
+            }
+        };
+        for (long t = keyframe; t < tick; t += 1) {
+            if (!deltas.readTick(apply)) {
+                throw new IllegalArgumentException("Recording ends at tick " + sim.ticks());
+            }
+        }
+
+        if (seeded) {
+            sim.setSeed(seed);
+        }
+        return sim;
+    }
+
+    /** Loads keyframe number index (or the last one, if the recording is
+     * shorter) into sim, points the delta reader just after it, and returns
+     * its tick. */
+    private long loadKeyframe(ParticleSimulator sim, long index) throws IOException {
+        long count = (keyframes.size() - Recorder.HEADER_SIZE) / frame.capacity();
+        index = Math.min(index, count - 1);
+
+        frame.clear();
+        long position = Recorder.HEADER_SIZE + index * frame.capacity();
+        while (frame.hasRemaining()) {
+            if (keyframes.read(frame, position + frame.position()) == -1) {
+                throw new IOException("Keyframe " + index + " is incomplete");
+            }
+        }
+        frame.flip();
+
+        long tick = frame.getLong();
+        deltas.seek(frame.getLong());
+        for (int x = 0; x < width; x += 1) {
+            for (int y = 0; y < height; y += 1) {
+                Particle p = sim.particles[x][y];
+                p.flavor = FLAVORS[frame.get()];
+                p.lifespan = frame.getShort();
+            }
+        }
+        sim.rehash();
+        sim.setTicks(tick);
+        return tick;
+    }
+
+    @Override
+    public void close() throws IOException {
+        keyframes.close();
+        deltas.close();
+    }
+}
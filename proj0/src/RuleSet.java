@@ -0,0 +1,447 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/** Particle behavior written as text rules and compiled, when loaded, into
+ * one MethodHandle tree that the JIT can inline like ordinary code.
+ *
+ * Each line is a rule for one flavor:
+ *
+ *     FLAVOR: [each] [if COND [and COND ...]] [chance P] -> ACTION [| ACTION ...]
+ *
+ * where a COND is "DIR is [not] FLAVOR [or FLAVOR ...]", P is a number or
+ * a fraction like 1/3, and an ACTION is one of
+ *
+ *     move DIR         move into the neighbor if it is EMPTY
+ *     swap DIR         trade places with the neighbor unless it is a BARRIER
+ *     grow DIR         put a new particle of this flavor there if it is EMPTY
+ *     set DIR FLAVOR   turn the neighbor into a new particle of FLAVOR
+ *     become FLAVOR    turn this particle into a new particle of FLAVOR
+ *     stay             do nothing
+ *
+ * A particle tries its flavor's rules in order and stops at the first one
+ * whose conditions hold and whose chance comes up; if that rule lists
+ * several actions, one is picked at random. An each rule is instead tried
+ * once per direction (UP, DOWN, LEFT, RIGHT), with "it" standing for that
+ * direction, and never stops the particle. Lines starting with # are
+ * comments. Flavors with no rules keep their built-in behavior.
+ *
+ * Random numbers are drawn exactly where the built-in rules draw them, so
+ * BUILT_IN reproduces a seeded board tick for tick.
+ */
+public class RuleSet {
+    /** The built-in behavior of every flavor, written as rules. */
+    public static final String BUILT_IN = """
+        SAND: if DOWN is EMPTY -> move DOWN
+        WATER: if DOWN is EMPTY -> move DOWN
+        WATER: -> move LEFT | move RIGHT | stay
+        PLANT: if DOWN is EMPTY -> move DOWN
+        PLANT: -> grow UP | grow LEFT | grow RIGHT | stay
+        FLOWER: if DOWN is EMPTY -> move DOWN
+        FLOWER: -> grow UP | grow LEFT | grow RIGHT | stay
+        FIRE: each if it is PLANT or FLOWER chance 0.4 -> set it FIRE
+        FOUNTAIN: if DOWN is EMPTY -> set DOWN WATER
+        """;
+
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+    /** (Particle, Map) is the shape of every compiled rule. */
+    private static final MethodType ACTION = MethodType.methodType(void.class, Particle.class, Map.class);
+    private static final MethodType TEST = MethodType.methodType(boolean.class, Particle.class, Map.class);
+
+    private static final MethodHandle IS;
+    private static final MethodHandle CHANCE;
+    private static final MethodHandle PICK;
+    private static final MethodHandle FLAVOR_OF;
+    private static final MethodHandle MOVE;
+    private static final MethodHandle SWAP;
+    private static final MethodHandle GROW;
+    private static final MethodHandle SET;
+    private static final MethodHandle BECOME;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            IS = lookup.findStatic(RuleSet.class, "is",
+                    MethodType.methodType(boolean.class, Map.class, Direction.class, int.class));
+            CHANCE = lookup.findStatic(RuleSet.class, "chance", MethodType.methodType(boolean.class, double.class));
+            PICK = lookup.findStatic(RuleSet.class, "pick", MethodType.methodType(int.class, int.class));
+            FLAVOR_OF = lookup.findStatic(RuleSet.class, "flavorOf", MethodType.methodType(int.class, Particle.class));
+            MOVE = lookup.findStatic(RuleSet.class, "move", ACTION.appendParameterTypes(Direction.class));
+            SWAP = lookup.findStatic(RuleSet.class, "swap", ACTION.appendParameterTypes(Direction.class));
+            GROW = lookup.findStatic(RuleSet.class, "grow", ACTION.appendParameterTypes(Direction.class));
+            SET = lookup.findStatic(RuleSet.class, "set",
+                    ACTION.appendParameterTypes(Direction.class, ParticleFlavor.class));
+            BECOME = lookup.findStatic(RuleSet.class, "become",
+                    MethodType.methodType(void.class, Particle.class, ParticleFlavor.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** One parsed line. Directions are null where the rule says "it". */
+    private record Rule(boolean each, List<Condition> conditions, double chance, List<Action> actions) { }
+
+    private record Condition(Direction direction, int flavors) { }
+
+    private record Action(String verb, Direction direction, ParticleFlavor flavor) { }
+
+    private final String source;
+    private final boolean[] handles = new boolean[FLAVORS.length];
+    /** (Particle, Map) -> boolean: runs p's rules, or returns false if its flavor has none. */
+    private final MethodHandle dispatch;
+
+    private RuleSet(String source, Map<ParticleFlavor, List<Rule>> rules) {
+        this.source = source;
+        MethodHandle[] cases = new MethodHandle[FLAVORS.length];
+        MethodHandle unhandled = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false),
+                0, int.class, Particle.class, Map.class);
+        for (ParticleFlavor flavor : FLAVORS) {
+            List<Rule> flavorRules = rules.get(flavor);
+            if (flavorRules == null) {
+                cases[flavor.ordinal()] = unhandled;
+            } else {
+                handles[flavor.ordinal()] = true;
+                cases[flavor.ordinal()] = MethodHandles.dropArguments(compile(flavorRules), 0, int.class);
+            }
+        }
+        dispatch = MethodHandles.foldArguments(MethodHandles.tableSwitch(unhandled, cases), FLAVOR_OF);
+    }
+
+    /** Parses and compiles rules, throwing IllegalArgumentException with the
+     * line number if any line can't be understood. */
+    public static RuleSet parse(String source) {
+        Map<ParticleFlavor, List<Rule>> rules = new EnumMap<>(ParticleFlavor.class);
+        String[] lines = source.split("\\n");
+        for (int i = 0; i < lines.length; i += 1) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("expected FLAVOR: at the start");
+                }
+                ParticleFlavor flavor = flavor(line.substring(0, colon).trim());
+                rules.computeIfAbsent(flavor, f -> new ArrayList<>()).add(parseRule(line.substring(colon + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage() + ": " + line);
+            }
+        }
+        return new RuleSet(source, rules);
+    }
+
+    /** Returns the text these rules were parsed from. */
+    public String source() {
+        return source;
+    }
+
+    private static Rule parseRule(String text) {
+        int arrow = text.indexOf("->");
+        if (arrow < 0) {
+            throw new IllegalArgumentException("expected ->");
+        }
+        List<String> words = new ArrayList<>(Arrays.asList(text.substring(0, arrow).trim().split("\\s+")));
+        words.removeIf(String::isEmpty);
+        int i = 0;
+        boolean each = i < words.size() && words.get(i).equals("each");
+        if (each) {
+            i += 1;
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        if (i < words.size() && words.get(i).equals("if")) {
+            do {
+                i += 1;
+                Direction direction = direction(word(words, i), each);
+                expect(words, i + 1, "is");
+                i += 2;
+                boolean negate = i < words.size() && words.get(i).equals("not");
+                if (negate) {
+                    i += 1;
+                }
+                int mask = 1 << flavor(word(words, i)).ordinal();
+                i += 1;
+                while (i < words.size() && words.get(i).equals("or")) {
+                    mask |= 1 << flavor(word(words, i + 1)).ordinal();
+                    i += 2;
+                }
+                conditions.add(new Condition(direction, negate ? ~mask : mask));
+            } while (i < words.size() && words.get(i).equals("and"));
+        }
+
+        double chance = 1;
+        if (i < words.size() && words.get(i).equals("chance")) {
+            chance = probability(word(words, i + 1));
+            i += 2;
+        }
+        if (i < words.size()) {
+            throw new IllegalArgumentException("unexpected '" + words.get(i) + "'");
+        }
+
+        List<Action> actions = new ArrayList<>();
+        for (String alternative : text.substring(arrow + 2).split("\\|")) {
+            actions.add(parseAction(alternative.trim().split("\\s+"), each));
+        }
+        return new Rule(each, conditions, chance, actions);
+    }
+
+    private static Action parseAction(String[] words, boolean each) {
+        String verb = words[0];
+        int expected = switch (verb) {
+            case "move", "swap", "grow", "become" -> 2;
+            case "set" -> 3;
+            case "stay" -> 1;
+            default -> throw new IllegalArgumentException("unknown action '" + verb + "'");
+        };
+        if (words.length != expected) {
+            throw new IllegalArgumentException("'" + verb + "' takes " + (expected - 1) + " words");
+        }
+        return switch (verb) {
+            case "move", "swap", "grow" -> new Action(verb, direction(words[1], each), null);
+            case "set" -> new Action(verb, direction(words[1], each), flavor(words[2]));
+            case "become" -> new Action(verb, null, flavor(words[1]));
+            default -> new Action(verb, null, null);
+        };
+    }
+
+    private static String word(List<String> words, int i) {
+        if (i >= words.size()) {
+            throw new IllegalArgumentException("rule ends too soon");
+        }
+        return words.get(i);
+    }
+
+    private static void expect(List<String> words, int i, String expected) {
+        if (!word(words, i).equals(expected)) {
+            throw new IllegalArgumentException("expected '" + expected + "' but found '" + words.get(i) + "'");
+        }
+    }
+
+    private static Direction direction(String word, boolean each) {
+        if (word.equals("it")) {
+            if (!each) {
+                throw new IllegalArgumentException("'it' only makes sense in an each rule");
+            }
+            return null;
+        }
+        try {
+            return Direction.valueOf(word);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown direction '" + word + "'");
+        }
+    }
+
+    private static ParticleFlavor flavor(String word) {
+        try {
+            return ParticleFlavor.valueOf(word);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown flavor '" + word + "'");
+        }
+    }
+
+    private static double probability(String word) {
+        try {
+            int slash = word.indexOf('/');
+            double p = slash < 0 ? Double.parseDouble(word)
+                    : Double.parseDouble(word.substring(0, slash)) / Double.parseDouble(word.substring(slash + 1));
+            if (p >= 0 && p <= 1) {
+                return p;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("'" + word + "' is not a probability");
+    }
+
+    /** Returns a (Particle, Map) -> boolean handle that runs a flavor's rules
+     * in order and returns true. */
+    private static MethodHandle compile(List<Rule> rules) {
+        // Built back to front: each rule falls through to the ones after it.
+        MethodHandle rest = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true),
+                0, Particle.class, Map.class);
+        for (int i = rules.size() - 1; i >= 0; i -= 1) {
+            Rule rule = rules.get(i);
+            if (rule.each()) {
+                for (int d = Direction.values().length - 1; d >= 0; d -= 1) {
+                    Direction direction = Direction.values()[d];
+                    MethodHandle once = MethodHandles.guardWithTest(test(rule, direction),
+                            action(rule, direction), MethodHandles.empty(ACTION));
+                    rest = MethodHandles.foldArguments(rest, once);
+                }
+            } else {
+                MethodHandle fire = MethodHandles.foldArguments(
+                        MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true),
+                                0, Particle.class, Map.class),
+                        action(rule, null));
+                rest = MethodHandles.guardWithTest(test(rule, null), fire, rest);
+            }
+        }
+        return rest;
+    }
+
+    /** Returns a test that is true when all of the rule's conditions hold and
+     * then its chance comes up, drawing a random number only if needed. */
+    private static MethodHandle test(Rule rule, Direction it) {
+        MethodHandle test = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true),
+                0, Particle.class, Map.class);
+        if (rule.chance() < 1) {
+            test = MethodHandles.dropArguments(MethodHandles.insertArguments(CHANCE, 0, rule.chance()),
+                    0, Particle.class, Map.class);
+        }
+        MethodHandle fail = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false),
+                0, Particle.class, Map.class);
+        for (int i = rule.conditions().size() - 1; i >= 0; i -= 1) {
+            Condition condition = rule.conditions().get(i);
+            Direction direction = condition.direction() == null ? it : condition.direction();
+            MethodHandle check = MethodHandles.dropArguments(
+                    MethodHandles.insertArguments(IS, 1, direction, condition.flavors()), 0, Particle.class);
+            test = MethodHandles.guardWithTest(check, test, fail);
+        }
+        return test.asType(TEST);
+    }
+
+    /** Returns a (Particle, Map) -> void handle doing one of the rule's actions. */
+    private static MethodHandle action(Rule rule, Direction it) {
+        List<Action> actions = rule.actions();
+        if (actions.size() == 1) {
+            return action(actions.get(0), it);
+        }
+        MethodHandle[] cases = new MethodHandle[actions.size()];
+        for (int i = 0; i < cases.length; i += 1) {
+            cases[i] = MethodHandles.dropArguments(action(actions.get(i), it), 0, int.class);
+        }
+        MethodHandle choose = MethodHandles.tableSwitch(cases[cases.length - 1], cases);
+        MethodHandle pick = MethodHandles.dropArguments(MethodHandles.insertArguments(PICK, 0, cases.length),
+                0, Particle.class, Map.class);
+        return MethodHandles.foldArguments(choose, pick);
+    }
+
+    private static MethodHandle action(Action action, Direction it) {
+        Direction direction = action.direction() == null ? it : action.direction();
+        MethodHandle handle = switch (action.verb()) {
+            case "move" -> MethodHandles.insertArguments(MOVE, 2, direction);
+            case "swap" -> MethodHandles.insertArguments(SWAP, 2, direction);
+            case "grow" -> MethodHandles.insertArguments(GROW, 2, direction);
+            case "set" -> MethodHandles.insertArguments(SET, 2, direction, action.flavor());
+            case "become" -> MethodHandles.dropArguments(
+                    MethodHandles.insertArguments(BECOME, 1, action.flavor()), 1, Map.class);
+            default -> MethodHandles.empty(ACTION);
+        };
+        return handle.asType(ACTION);
+    }
+
+    /** Returns true if this rule set replaces the built-in behavior of flavor. */
+    public boolean handles(ParticleFlavor flavor) {
+        return handles[flavor.ordinal()];
+    }
+
+    /** Runs p's rules and returns true, or returns false without doing
+     * anything if there are no rules for its flavor. */
+    public boolean apply(Particle p, Map<Direction, Particle> neighbors) {
+        try {
+            return (boolean) dispatch.invokeExact(p, (Map) neighbors);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // The building blocks compiled rules are made of.
+
+    private static int flavorOf(Particle p) {
+        return p.flavor.ordinal();
+    }
+
+    private static boolean is(Map<Direction, Particle> neighbors, Direction direction, int flavors) {
+        return (flavors & 1 << neighbors.get(direction).flavor.ordinal()) != 0;
+    }
+
+    private static boolean chance(double p) {
+        return Particle.random().nextDouble() < p;
+    }
+
+    private static int pick(int n) {
+        return Particle.random().nextInt(n);
+    }
+
+    private static void move(Particle p, Map<Direction, Particle> neighbors, Direction direction) {
+        Particle target = neighbors.get(direction);
+        if (target.flavor == ParticleFlavor.EMPTY) {
+            p.moveInto(target);
+        }
+    }
+
+    private static void swap(Particle p, Map<Direction, Particle> neighbors, Direction direction) {
+        Particle target = neighbors.get(direction);
+        if (target.flavor == ParticleFlavor.BARRIER) {
+            return;
+        }
+        ParticleFlavor flavor = target.flavor;
+        int lifespan = target.lifespan;
+        long expiresAt = target.expiresAt;
+        target.flavor = p.flavor;
+        target.lifespan = p.lifespan;
+        target.expiresAt = p.expiresAt;
+        p.flavor = flavor;
+        p.lifespan = lifespan;
+        p.expiresAt = expiresAt;
+    }
+
+    private static void grow(Particle p, Map<Direction, Particle> neighbors, Direction direction) {
+        Particle target = neighbors.get(direction);
+        if (target.flavor == ParticleFlavor.EMPTY) {
+            renew(target, p.flavor);
+        }
+    }
+
+    private static void set(Particle p, Map<Direction, Particle> neighbors, Direction direction,
+                            ParticleFlavor flavor) {
+        renew(neighbors.get(direction), flavor);
+    }
+
+    private static void become(Particle p, ParticleFlavor flavor) {
+        renew(p, flavor);
+    }
+
+    private static void renew(Particle p, ParticleFlavor flavor) {
+        p.flavor = flavor;
+        p.lifespan = Particle.LIFESPANS.getOrDefault(flavor, -1);
+        p.expiresAt = -1;
+    }
+
+    /** Times a sand and water world ticked with the built-in behavior and
+     * with BUILT_IN compiled from rules, and prints ticks per second. */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        RuleSet rules = parse(BUILT_IN);
+        for (int round = 0; round < 3; round += 1) {
+            for (boolean useRules : new boolean[] {false, true}) {
+                ParticleSimulator sim = new ParticleSimulator(size, size);
+                sim.setSeed(round);
+                for (int x = 0; x < size; x += 1) {
+                    sim.set(x, 0, ParticleFlavor.BARRIER);
+                    for (int y = size / 2; y < size; y += 3) {
+                        sim.set(x, y, (x + y) % 2 == 0 ? ParticleFlavor.SAND : ParticleFlavor.WATER);
+                    }
+                }
+                if (useRules) {
+                    sim.setRules(rules);
+                }
+                long start = System.nanoTime();
+                for (int t = 0; t < ticks; t += 1) {
+                    sim.tick();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-8s %8.1f ticks/s%n", useRules ? "rules" : "built-in", ticks / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/** Runs a simulator on its own thread at a fixed tick rate, independent of
+ * how fast the board can be drawn.
+ *
+ * The simulation thread is the only one that touches the simulator. After
+ * each tick it publishes a Frame into a single slot, replacing any frame the
+ * render thread hasn't picked up yet, so rendering always shows the newest
+ * board and never holds up the simulation. Input goes the other way through
+ * a queue that the simulation thread drains before each tick.
+ */
+public class SimulationLoop {
+    public static final int DEFAULT_TICKS_PER_SECOND = 200;
+    public static final int FRAMES_PER_SECOND = 60;
+    /** While a settled board sits idle, it is still ticked once every this
+     * many tick periods, in case it wasn't really settled. */
+    public static final int PROBE_INTERVAL = 50;
+
+    /** A request to put a particle somewhere, queued until the next tick. */
+    private static class PaintEvent {
+        final int x;
+        final int y;
+        final ParticleFlavor flavor;
+
+        PaintEvent(int x, int y, ParticleFlavor flavor) {
+            this.x = x;
+            this.y = y;
+            this.flavor = flavor;
+        }
+    }
+
+    private final ParticleSimulator sim;
+    private final long tickNanos;
+    private final AtomicReference<Frame> latestFrame = new AtomicReference<>();
+    private final Queue<PaintEvent> input = new ConcurrentLinkedQueue<>();
+    private final SteadyStateDetector steadyState = new SteadyStateDetector();
+    private volatile boolean running;
+    private Thread worker;
+
+    public SimulationLoop(ParticleSimulator sim, int ticksPerSecond) {
+        this.sim = sim;
+        tickNanos = 1_000_000_000L / ticksPerSecond;
+    }
+
+    /** Starts ticking on a new thread. */
+    public void start() {
+        running = true;
+        latestFrame.set(Frame.of(sim));
+        worker = new Thread(this::run, "simulation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Stops ticking and waits for the simulation thread to finish. Does
+     * nothing if start was never called. */
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            worker.join();
+        }
+    }
+
+    /** Queues a particle to be placed at (x, y) before the next tick. Safe to
+     * call from any thread. */
+    public void paint(int x, int y, ParticleFlavor flavor) {
+        input.add(new PaintEvent(x, y, flavor));
+        LockSupport.unpark(worker);
+    }
+
+    /** Returns the newest frame not yet taken, or null if there is none. */
+    public Frame takeFrame() {
+        return latestFrame.getAndSet(null);
+    }
+
+    private void run() {
+        long nextTick = System.nanoTime();
+        long idleTicks = 0;
+        while (running) {
+            boolean edited = applyInput();
+            if (edited) {
+                steadyState.reset();
+            }
+
+            // A board that has stopped changing needs no more ticks or
+            // frames until someone paints on it, apart from an occasional
+            // probe tick that withdraws convergence if the board moves.
+            boolean idle = steadyState.converged() && steadyState.period() == 1;
+            idleTicks = idle ? idleTicks + 1 : 0;
+            if (!idle || idleTicks % PROBE_INTERVAL == 0) {
+                sim.tick();
+                steadyState.observe(sim);
+                latestFrame.set(Frame.of(sim));
+            } else if (edited) {
+                latestFrame.set(Frame.of(sim));
+            }
+
+            nextTick += tickNanos;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -100 * tickNanos) {
+                // Far behind (e.g. the machine was suspended): don't try to catch up.
+                nextTick = System.nanoTime();
+            }
+        }
+    }
+
+    /** Applies all queued input and returns true if there was any. */
+    private boolean applyInput() {
+        boolean any = false;
+        PaintEvent event;
+        while ((event = input.poll()) != null) {
+            if (sim.validIndex(event.x, event.y)) {
+                sim.set(event.x, event.y, event.flavor);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /** Opens a window, runs the simulation and draws it until the program is
+     * closed. The calling thread becomes the render thread. */
+    public void runWindow() {
+        StdDraw.setXscale(0, sim.width);
+        StdDraw.setYscale(0, sim.height);
+        StdDraw.enableDoubleBuffering();
+        StdDraw.clear(StdDraw.BLACK);
+        start();
+
+        Map<Integer, Color> colors = new HashMap<>();
+        ParticleFlavor nextParticleFlavor = ParticleFlavor.SAND;
+        long frameMillis = 1000 / FRAMES_PER_SECOND;
+        while (true) {
+            while (StdDraw.hasNextKeyTyped()) {
+                ParticleFlavor flavor = ParticleSimulator.LETTER_TO_PARTICLE.get(StdDraw.nextKeyTyped());
+                if (flavor != null) {
+                    nextParticleFlavor = flavor;
+                }
+            }
+            if (StdDraw.isMousePressed()) {
+                paint((int) StdDraw.mouseX(), (int) StdDraw.mouseY(), nextParticleFlavor);
+            }
+
+            Frame frame = takeFrame();
+            if (frame != null) {
+                draw(frame, colors);
+                StdDraw.show();
+            }
+            StdDraw.pause((int) frameMillis);
+        }
+    }
+
+    /** Draws a frame, skipping black cells since the background is black. */
+    private static void draw(Frame frame, Map<Integer, Color> colors) {
+        StdDraw.clear(StdDraw.BLACK);
+        int black = Color.BLACK.getRGB();
+        for (int x = 0; x < frame.width; x += 1) {
+            for (int y = 0; y < frame.height; y += 1) {
+                int rgb = frame.rgb(x, y);
+                if (rgb != black) {
+                    StdDraw.setPenColor(colors.computeIfAbsent(rgb, Color::new));
+                    StdDraw.filledSquare(x + 0.5, y + 0.5, 0.5);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.Arrays;
+
+/** Answers "how many particles of this flavor are in this rectangle" and
+ * "where is the nearest one" without walking the whole board.
+ *
+ * The board is cut into CHUNK by CHUNK chunks. For each tracked flavor the
+ * index keeps a summed-area table inside every chunk and one over the
+ * chunk totals. A rectangle count reads the coarse table for the chunks it
+ * covers completely and the chunk tables for the ring of chunks it cuts
+ * through. The index follows its simulator as a DeltaSink, and a change only
+ * marks its chunk dirty; dirty chunks are brought up to date by the next
+ * query. Like the simulator, it must only be used from the thread that
+ * ticks it.
+ */
+public class SpatialIndex implements DeltaSink {
+    public static final int CHUNK = 32;
+
+    private final ParticleSimulator sim;
+    private final int simHeight;
+    private final int chunksX;
+    private final int chunksY;
+    /** Which slot each flavor's tables are in, or -1 if it isn't tracked. */
+    private final int[] slotOf = new int[ParticleFlavor.values().length];
+    private final ParticleFlavor[] tracked;
+
+    /** For each tracked flavor and chunk, how many particles of that flavor
+     * are at or below and left of each cell, counting within the chunk only.
+     * Chunk c's table starts at c * CHUNK * CHUNK and goes row by row. */
+    private final short[][] local;
+    /** For each tracked flavor, the summed-area table of chunk totals, with
+     * an extra row and column of zeros: entry (cx, cy) is the total of all
+     * chunks left of cx and below cy. */
+    private final int[][] coarse;
+
+    private final boolean[] dirty;
+    private int[] dirtyChunks = new int[16];
+    private int numDirty;
+
+    /** Builds an index of sim's board for the given flavors (or for every
+     * flavor if none are given) and starts following its changes. */
+    public SpatialIndex(ParticleSimulator sim, ParticleFlavor... flavors) {
+        this.sim = sim;
+        simHeight = sim.height;
+        chunksX = (sim.width + CHUNK - 1) / CHUNK;
+        chunksY = (sim.height + CHUNK - 1) / CHUNK;
+        tracked = flavors.length == 0 ? ParticleFlavor.values() : flavors.clone();
+        Arrays.fill(slotOf, -1);
+        for (int i = 0; i < tracked.length; i += 1) {
+            slotOf[tracked[i].ordinal()] = i;
+        }
+
+        local = new short[tracked.length][chunksX * chunksY * CHUNK * CHUNK];
+        coarse = new int[tracked.length][(chunksX + 1) * (chunksY + 1)];
+        dirty = new boolean[chunksX * chunksY];
+        for (int chunk = 0; chunk < dirty.length; chunk += 1) {
+            markDirty(chunk);
+        }
+        sim.addDeltaSink(this);
+    }
+
+    @Override
+    public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+        if (oldFlavor == newFlavor || (slotOf[oldFlavor.ordinal()] < 0 && slotOf[newFlavor.ordinal()] < 0)) {
+            return;
+        }
+        int x = cell / simHeight;
+        int y = cell % simHeight;
+        markDirty((y / CHUNK) * chunksX + x / CHUNK);
+    }
+
+    @Override
+    public void endTick(long tick) {
+    }
+
+    private void markDirty(int chunk) {
+        if (dirty[chunk]) {
+            return;
+        }
+        dirty[chunk] = true;
+        if (numDirty == dirtyChunks.length) {
+            dirtyChunks = Arrays.copyOf(dirtyChunks, numDirty * 2);
+        }
+        dirtyChunks[numDirty] = chunk;
+        numDirty += 1;
+    }
+
+    /** Rebuilds the tables of every dirty chunk, then the coarse tables. */
+    private void refresh() {
+        if (numDirty == 0) {
+            return;
+        }
+        for (int i = 0; i < numDirty; i += 1) {
+            int chunk = dirtyChunks[i];
+            dirty[chunk] = false;
+            rebuildChunk(chunk);
+        }
+        numDirty = 0;
+
+        for (int slot = 0; slot < tracked.length; slot += 1) {
+            int[] table = coarse[slot];
+            for (int cy = 0; cy < chunksY; cy += 1) {
+                for (int cx = 0; cx < chunksX; cx += 1) {
+                    int total = local[slot][(cy * chunksX + cx + 1) * CHUNK * CHUNK - 1];
+                    table[(cy + 1) * (chunksX + 1) + cx + 1] = total
+                            + table[cy * (chunksX + 1) + cx + 1]
+                            + table[(cy + 1) * (chunksX + 1) + cx]
+                            - table[cy * (chunksX + 1) + cx];
+                }
+            }
+        }
+    }
+
+    private void rebuildChunk(int chunk) {
+        int x0 = (chunk % chunksX) * CHUNK;
+        int y0 = (chunk / chunksX) * CHUNK;
+        int base = chunk * CHUNK * CHUNK;
+        for (int slot = 0; slot < tracked.length; slot += 1) {
+            short[] table = local[slot];
+            ParticleFlavor flavor = tracked[slot];
+            for (int ly = 0; ly < CHUNK; ly += 1) {
+                int rowCount = 0;
+                for (int lx = 0; lx < CHUNK; lx += 1) {
+                    int x = x0 + lx;
+                    int y = y0 + ly;
+                    if (sim.validIndex(x, y) && sim.particles[x][y].flavor == flavor) {
+                        rowCount += 1;
+                    }
+                    int below = ly > 0 ? table[base + (ly - 1) * CHUNK + lx] : 0;
+                    table[base + ly * CHUNK + lx] = (short) (rowCount + below);
+                }
+            }
+        }
+    }
+
+    /** Returns how many particles of the given flavor are in the rectangle
+     * from (x0, y0) to (x1, y1), both corners included. Parts of the
+     * rectangle off the board are ignored. */
+    public int count(ParticleFlavor flavor, int x0, int y0, int x1, int y1) {
+        int slot = slotOf(flavor);
+        refresh();
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, sim.width - 1);
+        y1 = Math.min(y1, sim.height - 1);
+        if (x0 > x1 || y0 > y1) {
+            return 0;
+        }
+
+        int cx0 = x0 / CHUNK;
+        int cy0 = y0 / CHUNK;
+        int cx1 = x1 / CHUNK;
+        int cy1 = y1 / CHUNK;
+        int total = 0;
+        if (cx1 - cx0 >= 2 && cy1 - cy0 >= 2) {
+            total += coarseSum(slot, cx0 + 1, cy0 + 1, cx1 - 1, cy1 - 1);
+        }
+        // Add up the chunks the rectangle only partly covers, which are the
+        // ring around the ones counted above.
+        for (int cy = cy0; cy <= cy1; cy += 1) {
+            boolean edgeRow = cy == cy0 || cy == cy1;
+            int step = edgeRow || cx1 - cx0 < 2 ? 1 : cx1 - cx0;
+            for (int cx = cx0; cx <= cx1; cx += step) {
+                total += chunkSum(slot, cx, cy, x0, y0, x1, y1);
+            }
+        }
+        return total;
+    }
+
+    /** Returns the total of the chunks from (cx0, cy0) to (cx1, cy1), inclusive. */
+    private int coarseSum(int slot, int cx0, int cy0, int cx1, int cy1) {
+        int[] table = coarse[slot];
+        int w = chunksX + 1;
+        return table[(cy1 + 1) * w + cx1 + 1] - table[cy0 * w + cx1 + 1]
+                - table[(cy1 + 1) * w + cx0] + table[cy0 * w + cx0];
+    }
+
+    /** Returns the count in the part of chunk (cx, cy) inside the rectangle. */
+    private int chunkSum(int slot, int cx, int cy, int x0, int y0, int x1, int y1) {
+        int lx0 = Math.max(x0 - cx * CHUNK, 0);
+        int ly0 = Math.max(y0 - cy * CHUNK, 0);
+        int lx1 = Math.min(x1 - cx * CHUNK, CHUNK - 1);
+        int ly1 = Math.min(y1 - cy * CHUNK, CHUNK - 1);
+        int base = (cy * chunksX + cx) * CHUNK * CHUNK;
+        short[] table = local[slot];
+        int sum = table[base + ly1 * CHUNK + lx1];
+        if (lx0 > 0) {
+            sum -= table[base + ly1 * CHUNK + lx0 - 1];
+        }
+        if (ly0 > 0) {
+            sum -= table[base + (ly0 - 1) * CHUNK + lx1];
+        }
+        if (lx0 > 0 && ly0 > 0) {
+            sum += table[base + (ly0 - 1) * CHUNK + lx0 - 1];
+        }
+        return sum;
+    }
+
+    /** Returns the number of particles of the given flavor on the whole board. */
+    public int count(ParticleFlavor flavor) {
+        return count(flavor, 0, 0, sim.width - 1, sim.height - 1);
+    }
+
+    /** Returns the cell (numbered x * height + y) of the particle of the
+     * given flavor closest to (x, y), or -1 if there is none. Ties go to the
+     * lowest cell number. Only chunks that hold the flavor are searched,
+     * working outwards from the chunk containing (x, y). */
+    public int nearest(ParticleFlavor flavor, int x, int y) {
+        int slot = slotOf(flavor);
+        refresh();
+        int cx = Math.floorDiv(x, CHUNK);
+        int cy = Math.floorDiv(y, CHUNK);
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        int maxRing = Math.max(Math.max(cx, chunksX - 1 - cx), Math.max(cy, chunksY - 1 - cy));
+        for (int ring = 0; ring <= maxRing; ring += 1) {
+            // Every cell in this ring is at least (ring - 1) * CHUNK + 1 away along some axis.
+            long closest = ring == 0 ? 0 : (long) (ring - 1) * CHUNK + 1;
+            if (closest * closest > bestDistance) {
+                break;
+            }
+            for (int ry = cy - ring; ry <= cy + ring; ry += 1) {
+                boolean edgeRow = ry == cy - ring || ry == cy + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int rx = cx - ring; rx <= cx + ring; rx += step) {
+                    if (rx < 0 || ry < 0 || rx >= chunksX || ry >= chunksY
+                            || local[slot][(ry * chunksX + rx + 1) * CHUNK * CHUNK - 1] == 0) {
+                        continue;
+                    }
+                    for (int px = rx * CHUNK; px < Math.min((rx + 1) * CHUNK, sim.width); px += 1) {
+                        for (int py = ry * CHUNK; py < Math.min((ry + 1) * CHUNK, sim.height); py += 1) {
+                            if (sim.particles[px][py].flavor != flavor) {
+                                continue;
+                            }
+                            long dx = px - x;
+                            long dy = py - y;
+                            long distance = dx * dx + dy * dy;
+                            int cell = px * simHeight + py;
+                            if (distance < bestDistance || (distance == bestDistance && cell < best)) {
+                                best = cell;
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int slotOf(ParticleFlavor flavor) {
+        int slot = slotOf[flavor.ordinal()];
+        if (slot < 0) {
+            throw new IllegalArgumentException(flavor + " is not tracked by this index");
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/** Watches the state hash of a simulator tick by tick and notices when the
+ * board settles into a fixed state (period 1) or a short cycle.
+ *
+ * Particles act randomly, so a repeat can be a coincidence (water that
+ * happened to stay put). A period only counts once the whole cycle has
+ * repeated minRepeats times in a row, and convergence is withdrawn again
+ * if the pattern later breaks. Staying put is the likeliest coincidence
+ * by far, so when given the simulator itself, the detector only accepts a
+ * fixed state once no particle can act randomly any more.
+ */
+public class SteadyStateDetector {
+    public static final int DEFAULT_WINDOW = 64;
+    public static final int DEFAULT_MIN_REPEATS = 3;
+
+    private final int window;
+    private final int minRepeats;
+
+    /** Hashes of the last window states, indexed by tick % window. */
+    private final long[] recent;
+    /** The most recent tick at which each hash in the window was seen. */
+    private final Map<Long, Long> lastSeen = new HashMap<>();
+
+    private long ticks;
+    private int candidatePeriod;
+    private long streak;
+    private boolean converged;
+    private int period;
+    private long convergedAt;
+
+    public SteadyStateDetector() {
+        this(DEFAULT_WINDOW, DEFAULT_MIN_REPEATS);
+    }
+
+    /** Creates a detector that finds periods up to window ticks long. */
+    public SteadyStateDetector(int window, int minRepeats) {
+        if (window < 1 || minRepeats < 1) {
+            throw new IllegalArgumentException("window and minRepeats must be positive");
+        }
+        this.window = window;
+        this.minRepeats = minRepeats;
+        recent = new long[window];
+    }
+
+    /** Ticks sim until it converges or maxTicks ticks have run, and returns
+     * the detector so callers can see whether, when and with what period. */
+    public static SteadyStateDetector runUntilSteady(ParticleSimulator sim, long maxTicks) {
+        SteadyStateDetector detector = new SteadyStateDetector();
+        while (detector.ticks() < maxTicks && !detector.converged()) {
+            sim.tick();
+            detector.observe(sim);
+        }
+        return detector;
+    }
+
+    /** Records sim's state after one more tick and returns converged(). A
+     * fixed state only counts if sim.canActRandomly() is false. */
+    public boolean observe(ParticleSimulator sim) {
+        return observe(sim.stateHash(), sim);
+    }
+
+    /** Records the state hash after one more tick and returns converged().
+     * With only the hash to go on, a random particle that stays put for a
+     * few ticks looks like a fixed state; prefer observe(sim). */
+    public boolean observe(long stateHash) {
+        return observe(stateHash, null);
+    }
+
+    private boolean observe(long stateHash, ParticleSimulator sim) {
+        ticks += 1;
+
+        Long seen = lastSeen.get(stateHash);
+        int repeatPeriod = seen == null ? 0 : (int) (ticks - seen);
+        if (repeatPeriod > 0 && repeatPeriod == candidatePeriod) {
+            streak += 1;
+        } else {
+            candidatePeriod = repeatPeriod;
+            streak = repeatPeriod > 0 ? 1 : 0;
+        }
+
+        if (converged && candidatePeriod != period) {
+            converged = false;
+        }
+        if (!converged && candidatePeriod > 0 && streak >= (long) candidatePeriod * minRepeats
+                && (candidatePeriod > 1 || sim == null || !sim.canActRandomly())) {
+            converged = true;
+            period = candidatePeriod;
+            // The last streak states each matched the state period ticks
+            // before them, so the cycle began period ticks before the streak.
+            convergedAt = ticks - streak + 1 - period;
+        }
+
+        int slot = (int) (ticks % window);
+        if (ticks > window) {
+            long expired = recent[slot];
+            if (lastSeen.get(expired) == ticks - window) {
+                lastSeen.remove(expired);
+            }
+        }
+        recent[slot] = stateHash;
+        lastSeen.put(stateHash, ticks);
+        return converged;
+    }
+
+    /** Forgets everything seen so far, e.g. after the board is edited. */
+    public void reset() {
+        lastSeen.clear();
+        ticks = 0;
+        candidatePeriod = 0;
+        streak = 0;
+        converged = false;
+        period = 0;
+        convergedAt = 0;
+    }
+
+    /** Returns true if the board is currently repeating with period(). */
+    public boolean converged() {
+        return converged;
+    }
+
+    /** Returns the length of the cycle, 1 for a fixed state, or 0 if not converged. */
+    public int period() {
+        return converged ? period : 0;
+    }
+
+    /** Returns the first tick of the repeating cycle, or -1 if not converged.
+     * Ticks are counted from 1 since construction or the last reset. */
+    public long convergedAt() {
+        return converged ? convergedAt : -1;
+    }
+
+    /** Returns the number of states observed since construction or the last reset. */
+    public long ticks() {
+        return ticks;
+    }
+
+    @Override
+    public String toString() {
+        if (!converged) {
+            return "not converged after " + ticks + " ticks";
+        }
+        return "converged at tick " + convergedAt + " with period " + period;
+    }
+}
@@ -0,0 +1,280 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** Owns and ticks one vertical strip of a TiledSimulation's world.
+ *
+ * A tile keeps its own columns plus a copy of the column on either side
+ * (the halo), which is all getNeighbors ever reads. A tick scans columns
+ * left to right exactly as ParticleSimulator.tick does, so tiles take turns:
+ *
+ * 1. Tile k waits for tile k - 1 to finish its columns and send its last
+ *    column, tile k's first column (which tile k - 1 may have moved or set
+ *    things into) and the random number generator as it was left.
+ * 2. Tile k ticks its columns. Once its second column is done, nothing can
+ *    change its first column or the halo on its left any more, so it sends
+ *    both back to tile k - 1, which can then start its next tick.
+ * 3. Tile k sends its last column, the right halo and the generator on to
+ *    tile k + 1, and waits for the two columns tile k + 1 sends back.
+ *
+ * Each tick still draws the same random numbers in the same order as a
+ * single simulator would, but tile k - 1 runs tick t + 1 while tile k + 1
+ * is finishing tick t.
+ */
+public class TileWorker implements Runnable {
+    static final int TICK = 1;
+    static final int GATHER = 2;
+    static final int STOP = 3;
+
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+
+    /** The most bytes a serialized generator may take; a Random takes about 80. */
+    private static final int MAX_RANDOM_BYTES = 1024;
+    /** The most bytes the text of a RuleSet may take. */
+    private static final int MAX_RULES_BYTES = 1 << 20;
+    /** Lets readRandom build a Random and nothing else, whatever a neighbor sends. */
+    private static final ObjectInputFilter RANDOM_ONLY = ObjectInputFilter.Config.createFilter(
+            "maxdepth=2;maxrefs=8;maxbytes=" + MAX_RANDOM_BYTES + ";java.util.Random;!*");
+
+    private final int coordinatorPort;
+
+    private int index;
+    private int numTiles;
+    /** The columns this tile owns, in the tile's own coordinates. */
+    private int first;
+    private int last;
+    private ParticleSimulator tile;
+
+    private DataInputStream fromLeft;
+    private DataOutputStream toLeft;
+    private DataInputStream fromRight;
+    private DataOutputStream toRight;
+
+    /** Creates a worker that will connect to a TiledSimulation listening on the given loopback port. */
+    public TileWorker(int coordinatorPort) {
+        this.coordinatorPort = coordinatorPort;
+    }
+
+    @Override
+    public void run() {
+        try {
+            serve();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void serve() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (Socket coordinator = new Socket(loopback, coordinatorPort);
+             ServerSocket server = new ServerSocket(0, 1, loopback)) {
+            coordinator.setTcpNoDelay(true);
+            DataInputStream in = input(coordinator);
+            DataOutputStream out = output(coordinator);
+
+            readSetup(in);
+            out.writeInt(server.getLocalPort());
+            out.flush();
+
+            int rightPort = in.readInt();
+            Socket right = null;
+            Socket left = null;
+            try {
+                if (index < numTiles - 1) {
+                    right = new Socket(loopback, rightPort);
+                    right.setTcpNoDelay(true);
+                    fromRight = input(right);
+                    toRight = output(right);
+                }
+                if (index > 0) {
+                    left = server.accept();
+                    left.setTcpNoDelay(true);
+                    fromLeft = input(left);
+                    toLeft = output(left);
+                }
+                out.writeInt(index);
+                out.flush();
+                serveCommands(in, out);
+            } finally {
+                if (left != null) {
+                    left.close();
+                }
+                if (right != null) {
+                    right.close();
+                }
+            }
+        }
+    }
+
+    private void readSetup(DataInputStream in) throws IOException {
+        index = in.readInt();
+        numTiles = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        first = in.readInt();
+        last = in.readInt();
+        boolean seeded = in.readBoolean();
+        long seed = in.readLong();
+        long ticks = in.readLong();
+        String rules = null;
+        if (in.readBoolean()) {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_RULES_BYTES) {
+                throw new IOException("Bad length for a rule set: " + length);
+            }
+            byte[] source = new byte[length];
+            in.readFully(source);
+            rules = new String(source, StandardCharsets.UTF_8);
+        }
+
+        tile = new ParticleSimulator(width, height);
+        if (rules != null) {
+            tile.setRules(RuleSet.parse(rules));
+        }
+        for (int x = 0; x < width; x += 1) {
+            readColumn(in, tile, x);
+        }
+        tile.setTicks(ticks);
+        // Only the first tile reseeds; the others carry on with the generator
+        // handed to them.
+        if (seeded && index == 0) {
+            tile.setSeed(seed);
+        }
+    }
+
+    private void serveCommands(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            int command = in.readInt();
+            if (command == TICK) {
+                int n = in.readInt();
+                for (int i = 0; i < n; i += 1) {
+                    tick();
+                }
+                out.writeLong(tile.ticks());
+            } else if (command == GATHER) {
+                for (int x = first; x <= last; x += 1) {
+                    writeColumn(out, x);
+                }
+            } else if (command == STOP) {
+                return;
+            } else {
+                throw new IOException("Unknown command " + command);
+            }
+            out.flush();
+        }
+    }
+
+    private void tick() throws IOException {
+        tile.startTick();
+        if (fromLeft != null) {
+            Particle.setRandom(readRandom(fromLeft));
+            readColumn(fromLeft, tile, first - 1);
+            readColumn(fromLeft, tile, first);
+        }
+        for (int x = first; x <= last; x += 1) {
+            tile.tickColumn(x);
+            if (x == first + 1 && toLeft != null) {
+                writeColumn(toLeft, first - 1);
+                writeColumn(toLeft, first);
+                toLeft.flush();
+            }
+        }
+        if (toRight != null) {
+            writeRandom(toRight, Particle.random());
+            writeColumn(toRight, last);
+            writeColumn(toRight, last + 1);
+            toRight.flush();
+        }
+        tile.finishTick();
+        if (fromRight != null) {
+            readColumn(fromRight, tile, last);
+            readColumn(fromRight, tile, last + 1);
+        }
+    }
+
+    /** Writes the flavor and lifespan of every cell in column x of the tile. */
+    private void writeColumn(DataOutputStream out, int x) throws IOException {
+        for (int y = 0; y < tile.height; y += 1) {
+            Particle p = tile.particles[x][y];
+            out.writeByte(p.flavor.ordinal());
+            out.writeShort(p.lifespan);
+        }
+    }
+
+    /** Writes a column given as flavors and lifespans, bottom to top, in the
+     * same form as writeColumn(out, x). */
+    static void writeColumn(DataOutputStream out, ParticleFlavor[] flavors, int[] lifespans) throws IOException {
+        for (int y = 0; y < flavors.length; y += 1) {
+            out.writeByte(flavors[y].ordinal());
+            out.writeShort(lifespans[y]);
+        }
+    }
+
+    /** Reads a column written by writeColumn into column x of sim. */
+    static void readColumn(DataInputStream in, ParticleSimulator sim, int x) throws IOException {
+        for (int y = 0; y < sim.height; y += 1) {
+            ParticleFlavor flavor = FLAVORS[in.readByte()];
+            int lifespan = in.readShort();
+            sim.applyChange(x * sim.height + y, flavor, lifespan);
+        }
+    }
+
+    /** Reads a column written by writeColumn into flavors and lifespans. */
+    static void readColumn(DataInputStream in, ParticleFlavor[] flavors, int[] lifespans) throws IOException {
+        for (int y = 0; y < flavors.length; y += 1) {
+            flavors[y] = FLAVORS[in.readByte()];
+            lifespans[y] = in.readShort();
+        }
+    }
+
+    static void writeRandom(DataOutputStream out, Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(random);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /** Reads a generator written by writeRandom, refusing anything that
+     * isn't a plain Random of a sensible size. */
+    static Random readRandom(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RANDOM_BYTES) {
+            throw new IOException("Bad length for a serialized Random: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            objects.setObjectInputFilter(RANDOM_ONLY);
+            return (Random) objects.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static DataInputStream input(Socket socket) throws IOException {
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    static DataOutputStream output(Socket socket) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /** Runs a worker in its own process: java TileWorker port */
+    public static void main(String[] args) {
+        new TileWorker(Integer.parseInt(args[0])).run();
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Splits a world into vertical strips that separate TileWorkers tick,
+ * either on threads of this JVM or in processes of their own, talking over
+ * loopback sockets. Tiles exchange the columns along their borders every
+ * tick (see TileWorker), and a seeded world ends up exactly as it would
+ * have if a single ParticleSimulator had ticked it.
+ *
+ * Strips are cut along columns because tick scans a column at a time, so
+ * the order in which particles act, and the random numbers they draw, can
+ * be kept the same. Every strip must be at least two columns wide.
+ *
+ * A world too big for one machine's memory can be described by a
+ * ColumnSource and read back through a ColumnSink, so the coordinator only
+ * ever holds one column and each worker holds just its own strip.
+ */
+public class TiledSimulation implements Closeable {
+    /** Where the workers run. */
+    public enum Launch { THREADS, PROCESSES }
+
+    /** Describes a world one column at a time, for example by generating
+     * it or by reading part of a file. */
+    public interface ColumnSource {
+        /** Fills flavors and lifespans with column x of the world, bottom to top. */
+        void column(int x, ParticleFlavor[] flavors, int[] lifespans) throws IOException;
+    }
+
+    /** Receives a world one column at a time. */
+    public interface ColumnSink {
+        /** Takes column x of the world, bottom to top. The arrays are reused
+         * for the next column. */
+        void column(int x, ParticleFlavor[] flavors, int[] lifespans) throws IOException;
+    }
+
+    private final int width;
+    private final int height;
+    private final boolean seeded;
+    private final long seed;
+    /** The rules every tile follows, or null for the built-in behavior. */
+    private final RuleSet rules;
+    private final int[] firstColumns;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataInputStream> ins = new ArrayList<>();
+    private final List<DataOutputStream> outs = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private long ticks;
+
+    /** Hands world out to numTiles workers, which from then on own it,
+     * following the same rules if it has any. world itself is left as it is. */
+    public TiledSimulation(ParticleSimulator world, int numTiles, Launch launch) throws IOException {
+        this(world.width, world.height, world.isSeeded(), world.seed(), world.ticks(), world.rules(),
+                columnsOf(world), numTiles, launch);
+    }
+
+    /** Hands a world of the given size, seeded with seed and at tick 0, out
+     * to numTiles workers, asking source for one column at a time. */
+    public TiledSimulation(int width, int height, long seed, ColumnSource source, int numTiles, Launch launch)
+            throws IOException {
+        this(width, height, true, seed, 0, null, source, numTiles, launch);
+    }
+
+    private TiledSimulation(int width, int height, boolean seeded, long seed, long ticks, RuleSet rules,
+            ColumnSource source, int numTiles, Launch launch) throws IOException {
+        if (numTiles < 1 || width < 2 * numTiles) {
+            throw new IllegalArgumentException("Every tile must be at least 2 columns wide");
+        }
+        this.width = width;
+        this.height = height;
+        this.seeded = seeded;
+        this.seed = seed;
+        this.rules = rules;
+        this.ticks = ticks;
+        firstColumns = new int[numTiles + 1];
+        for (int k = 0; k <= numTiles; k += 1) {
+            firstColumns[k] = (int) ((long) width * k / numTiles);
+        }
+
+        try (ServerSocket server = new ServerSocket(0, numTiles, InetAddress.getLoopbackAddress())) {
+            for (int k = 0; k < numTiles; k += 1) {
+                launch(launch, server.getLocalPort());
+            }
+            for (int k = 0; k < numTiles; k += 1) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                ins.add(TileWorker.input(socket));
+                outs.add(TileWorker.output(socket));
+            }
+
+            int[] ports = new int[numTiles];
+            for (int k = 0; k < numTiles; k += 1) {
+                sendSetup(source, k);
+            }
+            for (int k = 0; k < numTiles; k += 1) {
+                ports[k] = ins.get(k).readInt();
+            }
+            for (int k = 0; k < numTiles; k += 1) {
+                outs.get(k).writeInt(k + 1 < numTiles ? ports[k + 1] : -1);
+                outs.get(k).flush();
+            }
+            for (int k = 0; k < numTiles; k += 1) {
+                ins.get(k).readInt();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** Returns a source that copies the columns of world. Worlds whose
+     * particles act on more than their neighbors can't be tiled: the
+     * lifespan wheel (and so frontier mode) ages cells from anywhere, and
+     * liquid mode moves water across a whole body at once. */
+    private static ColumnSource columnsOf(ParticleSimulator world) {
+        if (world.usesLifespanWheel()) {
+            throw new IllegalStateException("Can't tile a simulator that uses a lifespan wheel");
+        }
+        if (world.waterSolver() != null) {
+            throw new IllegalStateException("Can't tile a simulator in liquid mode");
+        }
+        return (x, flavors, lifespans) -> {
+            for (int y = 0; y < world.height; y += 1) {
+                flavors[y] = world.particles[x][y].flavor;
+                lifespans[y] = world.particles[x][y].lifespan;
+            }
+        };
+    }
+
+    private void launch(Launch launch, int port) throws IOException {
+        if (launch == Launch.THREADS) {
+            Thread thread = new Thread(new TileWorker(port), "tile worker");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "TileWorker", Integer.toString(port)).inheritIO().start());
+        }
+    }
+
+    /** Sends tile k its place in the world and its columns, with a halo
+     * column on each side that has a neighboring tile. */
+    private void sendSetup(ColumnSource source, int k) throws IOException {
+        int numTiles = firstColumns.length - 1;
+        int from = firstColumns[k] - (k > 0 ? 1 : 0);
+        int to = firstColumns[k + 1] + (k + 1 < numTiles ? 1 : 0);
+        int offset = firstColumns[k] - from;
+
+        DataOutputStream out = outs.get(k);
+        out.writeInt(k);
+        out.writeInt(numTiles);
+        out.writeInt(to - from);
+        out.writeInt(height);
+        out.writeInt(offset);
+        out.writeInt(offset + firstColumns[k + 1] - firstColumns[k] - 1);
+        out.writeBoolean(seeded);
+        out.writeLong(seed);
+        out.writeLong(ticks);
+        out.writeBoolean(rules != null);
+        if (rules != null) {
+            byte[] text = rules.source().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+        }
+        ParticleFlavor[] flavors = new ParticleFlavor[height];
+        int[] lifespans = new int[height];
+        for (int x = from; x < to; x += 1) {
+            source.column(x, flavors, lifespans);
+            TileWorker.writeColumn(out, flavors, lifespans);
+        }
+        out.flush();
+    }
+
+    /** Returns the number of tiles. */
+    public int numTiles() {
+        return outs.size();
+    }
+
+    /** Returns the number of ticks the world has run. */
+    public long ticks() {
+        return ticks;
+    }
+
+    /** Runs n ticks on every tile and waits for them to finish. */
+    public void tick(int n) throws IOException {
+        for (DataOutputStream out : outs) {
+            out.writeInt(TileWorker.TICK);
+            out.writeInt(n);
+            out.flush();
+        }
+        for (DataInputStream in : ins) {
+            ticks = in.readLong();
+        }
+    }
+
+    /** Collects every tile's columns into a single simulator, which can go
+     * on ticking by itself exactly as the tiles would have. */
+    public ParticleSimulator gather() throws IOException {
+        ParticleSimulator world = new ParticleSimulator(width, height);
+        gather((x, flavors, lifespans) -> {
+            for (int y = 0; y < height; y += 1) {
+                world.applyChange(x * height + y, flavors[y], lifespans[y]);
+            }
+        });
+        world.setTicks(ticks);
+        world.setRules(rules);
+        if (seeded) {
+            world.setSeed(seed);
+        }
+        return world;
+    }
+
+    /** Passes every column of the world to sink, left to right, without
+     * putting the whole world together. */
+    public void gather(ColumnSink sink) throws IOException {
+        for (DataOutputStream out : outs) {
+            out.writeInt(TileWorker.GATHER);
+            out.flush();
+        }
+        ParticleFlavor[] flavors = new ParticleFlavor[height];
+        int[] lifespans = new int[height];
+        for (int k = 0; k < ins.size(); k += 1) {
+            for (int x = firstColumns[k]; x < firstColumns[k + 1]; x += 1) {
+                TileWorker.readColumn(ins.get(k), flavors, lifespans);
+                sink.column(x, flavors, lifespans);
+            }
+        }
+    }
+
+    /** Tells every worker to stop and waits for worker processes to exit. */
+    @Override
+    public void close() throws IOException {
+        for (DataOutputStream out : outs) {
+            try {
+                out.writeInt(TileWorker.STOP);
+                out.flush();
+            } catch (IOException e) {
+                // The worker is gone already.
+            }
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Ticks a world in worker processes and checks the result against a single simulator. */
+    public static void main(String[] args) throws IOException {
+        int numTiles = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        ParticleSimulator world = new ParticleSimulator(400, 200);
+        world.setSeed(41);
+        for (int x = 0; x < world.width; x += 1) {
+            world.set(x, 0, ParticleFlavor.BARRIER);
+            if (x % 25 == 0) {
+                world.set(x, world.height - 1, ParticleFlavor.FOUNTAIN);
+            }
+            if (x % 3 == 0) {
+                world.set(x, 60, ParticleFlavor.PLANT);
+                world.set(x, 150, ParticleFlavor.SAND);
+            }
+        }
+        world.set(99, 61, ParticleFlavor.FIRE);
+
+        long start = System.nanoTime();
+        ParticleSimulator tiled;
+        try (TiledSimulation simulation = new TiledSimulation(world, numTiles, Launch.PROCESSES)) {
+            simulation.tick(ticks);
+            tiled = simulation.gather();
+        }
+        double tiledSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        for (int t = 0; t < ticks; t += 1) {
+            world.tick();
+        }
+        double singleSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d tiles: %.2f s, single simulator: %.2f s, same board: %b%n",
+                numTiles, tiledSeconds, singleSeconds, tiled.stateHash() == world.stateHash());
+    }
+}
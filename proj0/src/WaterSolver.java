@@ -0,0 +1,326 @@
+import java.util.Arrays;
+
+/** Levels bodies of water in bulk for a simulator in liquid mode.
+ *
+ * Water cells that touch each other form a body. Before each tick, every
+ * body that something touched since the last tick moves water from its
+ * highest surface cells (water with an empty cell above) straight into
+ * its lowest holes (supported empty cells beside or below the body), as
+ * long as that lowers the water, the way pressure would push it through.
+ * A tall column next to a basin empties into it in a few ticks instead of
+ * trickling one random step at a time.
+ *
+ * Only bodies holding a dirty cell are looked at: water that arrived, or
+ * water next to a cell that changed. Each is flood-filled from its dirty
+ * cell, which also relabels it, so water leaving a cell only costs a
+ * flood of the bodies beside it. Bodies nothing touched keep their labels
+ * and are left alone, and all the scratch space is allocated up front.
+ *
+ * A body with nothing to level and no empty cell beside or below any of
+ * its cells can't move at all, so its cells are marked still and the scan
+ * skips them until something next to them empties.
+ */
+public class WaterSolver {
+    /** Water can move into the cells to its left, right and below. */
+    private static final int[] HOLE_DX = {-1, 1, 0};
+    private static final int[] HOLE_DY = {0, 0, -1};
+    /** Flood fills look at the cells to the left, right, below and above. */
+    private static final int[] NEIGHBOR_DX = {-1, 1, 0, 0};
+    private static final int[] NEIGHBOR_DY = {0, 0, -1, 1};
+
+    private final ParticleSimulator sim;
+    private final int height;
+
+    /** The body each water cell belonged to when it was last flooded (a
+     * cell of that body), or -1 for cells without water or not flooded yet. */
+    private final int[] label;
+    /** How many water cells carry each label. */
+    private final int[] labelSize;
+    private final boolean[] still;
+
+    /** Cells whose bodies need levelling before the next tick, in the
+     * order they were touched, and a flag for each cell saying it is there. */
+    private int[] dirty;
+    private int numDirty;
+    private final boolean[] isDirty;
+    /** The dirty cells being worked through, swapped with dirty so that
+     * cells touched while levelling wait for the next tick. */
+    private int[] seeds;
+
+    /** Water came or went since the last flood, so labels may be wrong. */
+    private boolean stale = true;
+
+    /** Scratch space: the cells of the body being flooded (also the flood's
+     * queue), its donors and holes, and marks for cells already seen. */
+    private final int[] bodyCells;
+    private final long[] donors;
+    private final long[] holes;
+    private final int[] floodMark;
+    private final int[] holeMark;
+    private int floodStamp;
+    private int holeStamp;
+
+    private int numBodies;
+    private int movedLastTick;
+
+    WaterSolver(ParticleSimulator sim) {
+        this.sim = sim;
+        height = sim.height;
+        int cells = sim.width * sim.height;
+        label = new int[cells];
+        labelSize = new int[cells];
+        still = new boolean[cells];
+        dirty = new int[cells];
+        isDirty = new boolean[cells];
+        seeds = new int[cells];
+        bodyCells = new int[cells];
+        donors = new long[cells];
+        holes = new long[cells];
+        floodMark = new int[cells];
+        holeMark = new int[cells];
+        Arrays.fill(label, -1);
+        for (int x = 0; x < sim.width; x += 1) {
+            for (int y = 0; y < sim.height; y += 1) {
+                if (isWater(x, y)) {
+                    markDirty(x * height + y);
+                }
+            }
+        }
+    }
+
+    /** Returns the number of separate bodies of water. */
+    public int numBodies() {
+        if (stale) {
+            relabel();
+        }
+        return numBodies;
+    }
+
+    /** Returns how many water cells the last settle moved. */
+    public int movedLastTick() {
+        return movedLastTick;
+    }
+
+    /** Returns true if the water in cell can't move and is being skipped. */
+    public boolean isStill(int cell) {
+        return still[cell];
+    }
+
+    /** Returns true if the water cells at (x1, y1) and (x2, y2) are in the same body. */
+    public boolean sameBody(int x1, int y1, int x2, int y2) {
+        if (stale) {
+            relabel();
+        }
+        return isWater(x1, y1) && isWater(x2, y2) && label[x1 * height + y1] == label[x2 * height + y2];
+    }
+
+    /** Called by the simulator whenever the flavor at (x, y) changes. */
+    void cellChanged(int x, int y, ParticleFlavor oldFlavor, ParticleFlavor newFlavor) {
+        int cell = x * height + y;
+        if (oldFlavor == ParticleFlavor.WATER) {
+            setLabel(cell, -1);
+            still[cell] = false;
+            stale = true;
+        }
+        if (newFlavor == ParticleFlavor.WATER) {
+            still[cell] = false;
+            stale = true;
+            markDirty(cell);
+        }
+        if (newFlavor == ParticleFlavor.EMPTY) {
+            // Water beside or above an emptied cell can move into it right away.
+            wake(x - 1, y);
+            wake(x + 1, y);
+            wake(x, y + 1);
+        }
+        // Water that left may have split the bodies beside it, and anything
+        // else that changed may give them somewhere new to go.
+        for (int k = 0; k < NEIGHBOR_DX.length; k += 1) {
+            int nx = x + NEIGHBOR_DX[k];
+            int ny = y + NEIGHBOR_DY[k];
+            if (isWater(nx, ny)) {
+                markDirty(nx * height + ny);
+            }
+        }
+    }
+
+    private void wake(int x, int y) {
+        if (sim.validIndex(x, y)) {
+            still[x * height + y] = false;
+        }
+    }
+
+    /** Levels every body of water that holds a dirty cell. */
+    void settle() {
+        movedLastTick = 0;
+        int numSeeds = takeDirty();
+        if (numSeeds == 0) {
+            return;
+        }
+        // Every body that water came or went from is flooded below, so the
+        // labels are right again apart from whatever levelling moves.
+        stale = false;
+        nextFloodStamp();
+        for (int i = 0; i < numSeeds; i += 1) {
+            int end = flood(seeds[i]);
+            if (end > 0) {
+                settleBody(end);
+            }
+        }
+    }
+
+    /** Moves the dirty cells into seeds, leaving dirty empty, and returns how many there are. */
+    private int takeDirty() {
+        int[] taken = dirty;
+        int n = numDirty;
+        dirty = seeds;
+        seeds = taken;
+        numDirty = 0;
+        for (int i = 0; i < n; i += 1) {
+            isDirty[taken[i]] = false;
+        }
+        return n;
+    }
+
+    private void markDirty(int cell) {
+        if (!isDirty[cell]) {
+            isDirty[cell] = true;
+            dirty[numDirty] = cell;
+            numDirty += 1;
+        }
+    }
+
+    /** Floods the body of every dirty cell again without levelling them, so
+     * labels are right for numBodies and sameBody. */
+    private void relabel() {
+        nextFloodStamp();
+        for (int i = 0; i < numDirty; i += 1) {
+            flood(dirty[i]);
+        }
+        stale = false;
+    }
+
+    /** Puts the cells of the body holding seed into bodyCells, labels them
+     * with seed, and returns how many there are. Returns 0 if seed holds no
+     * water or its body was already flooded since the last nextFloodStamp. */
+    private int flood(int seed) {
+        if (floodMark[seed] == floodStamp || !isWater(seed / height, seed % height)) {
+            return 0;
+        }
+        floodMark[seed] = floodStamp;
+        bodyCells[0] = seed;
+        int end = 1;
+        for (int next = 0; next < end; next += 1) {
+            int cell = bodyCells[next];
+            setLabel(cell, seed);
+            int x = cell / height;
+            int y = cell % height;
+            for (int k = 0; k < NEIGHBOR_DX.length; k += 1) {
+                int nx = x + NEIGHBOR_DX[k];
+                int ny = y + NEIGHBOR_DY[k];
+                int neighbor = nx * height + ny;
+                if (isWater(nx, ny) && floodMark[neighbor] != floodStamp) {
+                    floodMark[neighbor] = floodStamp;
+                    bodyCells[end] = neighbor;
+                    end += 1;
+                }
+            }
+        }
+        return end;
+    }
+
+    /** Moves cell from whatever body it was labelled with to newLabel (-1 for none). */
+    private void setLabel(int cell, int newLabel) {
+        int oldLabel = label[cell];
+        if (oldLabel == newLabel) {
+            return;
+        }
+        if (oldLabel >= 0) {
+            labelSize[oldLabel] -= 1;
+            if (labelSize[oldLabel] == 0) {
+                numBodies -= 1;
+            }
+        }
+        if (newLabel >= 0) {
+            if (labelSize[newLabel] == 0) {
+                numBodies += 1;
+            }
+            labelSize[newLabel] += 1;
+        }
+        label[cell] = newLabel;
+    }
+
+    private void nextFloodStamp() {
+        if (floodStamp == Integer.MAX_VALUE) {
+            Arrays.fill(floodMark, 0);
+            floodStamp = 0;
+        }
+        floodStamp += 1;
+    }
+
+    /** Levels the body made of bodyCells[0, end). */
+    private void settleBody(int end) {
+        if (holeStamp == Integer.MAX_VALUE) {
+            Arrays.fill(holeMark, 0);
+            holeStamp = 0;
+        }
+        holeStamp += 1;
+        int numDonors = 0;
+        int numHoles = 0;
+        boolean canMove = false;
+
+        for (int i = 0; i < end; i += 1) {
+            int cell = bodyCells[i];
+            int x = cell / height;
+            int y = cell % height;
+            // Sort donors highest first and holes lowest first.
+            if (isEmpty(x, y + 1)) {
+                donors[numDonors] = (long) (height - y) << 32 | cell;
+                numDonors += 1;
+            }
+            for (int k = 0; k < HOLE_DX.length; k += 1) {
+                int hx = x + HOLE_DX[k];
+                int hy = y + HOLE_DY[k];
+                if (!isEmpty(hx, hy)) {
+                    continue;
+                }
+                canMove = true;
+                int hole = hx * height + hy;
+                if (!isEmpty(hx, hy - 1) && holeMark[hole] != holeStamp) {
+                    holeMark[hole] = holeStamp;
+                    holes[numHoles] = (long) hy << 32 | hole;
+                    numHoles += 1;
+                }
+            }
+        }
+        Arrays.sort(donors, 0, numDonors);
+        Arrays.sort(holes, 0, numHoles);
+
+        int moved = 0;
+        while (moved < numDonors && moved < numHoles) {
+            int donor = (int) donors[moved];
+            int hole = (int) holes[moved];
+            if (donor % height <= hole % height) {
+                break;
+            }
+            sim.applyChange(donor, ParticleFlavor.EMPTY, -1);
+            sim.applyChange(hole, ParticleFlavor.WATER, -1);
+            moved += 1;
+        }
+        movedLastTick += moved;
+
+        if (!canMove) {
+            for (int i = 0; i < end; i += 1) {
+                still[bodyCells[i]] = true;
+            }
+        }
+    }
+
+    private boolean isWater(int x, int y) {
+        return sim.validIndex(x, y) && sim.particles[x][y].flavor == ParticleFlavor.WATER;
+    }
+
+    private boolean isEmpty(int x, int y) {
+        return sim.validIndex(x, y) && sim.particles[x][y].flavor == ParticleFlavor.EMPTY;
+    }
+}
@@ -0,0 +1,61 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class TestBatchScheduler {
+
+    private static ParticleSimulator world(long seed) {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            n..s..n
+            .......
+            ...p...
+            w..fz.w
+            bbbbbbb
+            """);
+        sim.setSeed(seed);
+        return sim;
+    }
+
+    @Test
+    public void testMatchesSequentialRuns() throws InterruptedException {
+        try (BatchScheduler scheduler = new BatchScheduler(3, 5)) {
+            for (int i = 0; i < 20; i += 1) {
+                scheduler.add("world " + i, world(i), 40 + i);
+            }
+            scheduler.runAll();
+
+            for (int i = 0; i < 20; i += 1) {
+                ParticleSimulator expected = world(i);
+                for (int t = 0; t < 40 + i; t += 1) {
+                    expected.tick();
+                }
+                BatchScheduler.World world = scheduler.worlds().get(i);
+                assertThat(world.done()).isTrue();
+                assertThat(world.sim.ticks()).isEqualTo(40 + i);
+                assertThat(world.sim).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testBudgetsAndTurns() throws InterruptedException {
+        try (BatchScheduler scheduler = new BatchScheduler(2, 8)) {
+            BatchScheduler.World small = scheduler.add("small", world(1), 3);
+            BatchScheduler.World large = scheduler.add("large", world(2), 100);
+            BatchScheduler.World none = scheduler.add("none", world(3), 0);
+            scheduler.runAll();
+
+            assertThat(small.ticksRun()).isEqualTo(3);
+            assertThat(small.turns()).isEqualTo(1);
+            assertThat(large.ticksRun()).isEqualTo(100);
+            // No turn is longer than a slice.
+            assertThat(large.turns()).isEqualTo(13);
+            assertThat(none.turns()).isEqualTo(0);
+            assertThat(scheduler.totalTicks()).isEqualTo(103);
+
+            // Running again only picks up worlds with budget left.
+            scheduler.runAll();
+            assertThat(scheduler.totalTicks()).isEqualTo(103);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestDeltaStream {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static final String BOARD = """
+        n.....s.
+        ........
+        ..p..z..
+        .pppfzz.
+        bbbbbbbb
+        """;
+
+    /** A sink that copies every change onto another simulator. */
+    private static DeltaSink mirror(ParticleSimulator target) {
+        return new DeltaSink() {
+            @Override
+            public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+                Particle p = target.particles[cell / target.height][cell % target.height];
+                assertThat(p.flavor).isEqualTo(oldFlavor);
+                p.flavor = newFlavor;
+                p.lifespan = lifespan;
+            }
+
+            @Override
+            public void endTick(long tick) {
+                target.rehash();
+            }
+        };
+    }
+
+    @Test
+    public void testReplayFromFileMatchesRun() throws IOException {
+        Path file = temp.newFile("deltas.bin").toPath();
+        ParticleSimulator sim = ParticleSimulator.fromBoardString(BOARD);
+        List<Long> stateHashes = new ArrayList<>();
+
+        try (DeltaFileWriter writer = new DeltaFileWriter(file, sim.width, sim.height)) {
+            sim.setDeltaSink(writer);
+            for (int i = 0; i < 300; i++) {
+                sim.tick();
+                stateHashes.add(sim.stateHash());
+            }
+        }
+
+        ParticleSimulator replay = ParticleSimulator.fromBoardString(BOARD);
+        try (DeltaFileReader reader = new DeltaFileReader(file)) {
+            assertThat(reader.width).isEqualTo(sim.width);
+            assertThat(reader.height).isEqualTo(sim.height);
+
+            DeltaSink sink = mirror(replay);
+            int ticks = 0;
+            while (reader.readTick(sink)) {
+                assertWithMessage("State differs at tick %s", ticks + 1)
+                        .that(replay.stateHash())
+                        .isEqualTo(stateHashes.get(ticks));
+                ticks++;
+            }
+            assertThat(ticks).isEqualTo(300);
+        }
+        assertThat(replay).isEqualTo(sim);
+    }
+
+    @Test
+    public void testQuietBoardWritesLittle() throws IOException {
+        Path file = temp.newFile("deltas.bin").toPath();
+        ParticleSimulator sim = new ParticleSimulator(200, 200);
+        sim.set(100, 100, ParticleFlavor.SAND);
+
+        try (DeltaFileWriter writer = new DeltaFileWriter(file, sim.width, sim.height)) {
+            sim.setDeltaSink(writer);
+            for (int i = 0; i < 1000; i++) {
+                sim.tick();
+            }
+        }
+
+        // 100 falling ticks of two changes each, then empty ticks: far
+        // less than one byte per cell for even a single tick.
+        assertThat(Files.size(file)).isLessThan(200 * 200 / 4);
+    }
+
+    @Test
+    public void testTicksPastIntRange() throws IOException {
+        Path file = temp.newFile("deltas.bin").toPath();
+        ParticleSimulator sim = ParticleSimulator.fromBoardString(BOARD);
+        long start = (1L << 40) + Integer.MAX_VALUE;
+        sim.setTicks(start);
+
+        try (DeltaFileWriter writer = new DeltaFileWriter(file, sim.width, sim.height)) {
+            sim.setDeltaSink(writer);
+            for (int i = 0; i < 3; i++) {
+                sim.tick();
+            }
+        }
+
+        List<Long> ticks = new ArrayList<>();
+        try (DeltaFileReader reader = new DeltaFileReader(file)) {
+            DeltaSink sink = new DeltaSink() {
+                @Override
+                public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+                }
+
+                @Override
+                public void endTick(long tick) {
+                    ticks.add(tick);
+                }
+            };
+            while (reader.readTick(sink)) {
+                // Collects the tick numbers.
+            }
+        }
+        assertThat(ticks).isEqualTo(List.of(start + 1, start + 2, start + 3));
+    }
+}
@@ -0,0 +1,75 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestFrameExporter {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static ParticleSimulator fallingSand() {
+        return ParticleSimulator.fromBoardString("""
+            s.
+            ..
+            ..
+            bb
+            """);
+    }
+
+    @Test
+    public void testPngFrames() throws IOException {
+        Path dir = temp.newFolder("frames").toPath();
+        ParticleSimulator sim = fallingSand();
+        FrameExporter exporter = new FrameExporter(dir, FrameExporter.Format.PNG, 2, 2);
+        for (int t = 0; t < 5; t += 1) {
+            sim.tick();
+            exporter.afterTick(sim);
+        }
+        exporter.close();
+
+        assertThat(exporter.framesWritten()).isEqualTo(2);
+        assertThat(Files.exists(exporter.pngFile(1))).isFalse();
+        assertThat(Files.exists(exporter.pngFile(4))).isTrue();
+        BufferedImage image = ImageIO.read(exporter.pngFile(2).toFile());
+        assertThat(image.getWidth()).isEqualTo(2);
+        assertThat(image.getHeight()).isEqualTo(4);
+        // Image rows go top down, so the sand that fell two cells is in row 2.
+        assertThat(image.getRGB(0, 2)).isEqualTo(Color.YELLOW.getRGB());
+        assertThat(image.getRGB(0, 0)).isEqualTo(Color.BLACK.getRGB());
+        assertThat(image.getRGB(1, 3)).isEqualTo(Color.GRAY.getRGB());
+    }
+
+    @Test
+    public void testRawFramesInOrder() throws IOException {
+        Path dir = temp.newFolder("frames").toPath();
+        ParticleSimulator sim = fallingSand();
+        try (FrameExporter exporter = new FrameExporter(dir, FrameExporter.Format.RAW, 1, 3, 2)) {
+            for (int t = 0; t < 3; t += 1) {
+                sim.tick();
+                exporter.afterTick(sim);
+            }
+        }
+
+        byte[] bytes = Files.readAllBytes(dir.resolve(FrameExporter.RAW_FILE));
+        int frameSize = 2 * 4 * 3;
+        assertThat(bytes.length).isEqualTo(3 * frameSize);
+        // The sand is in row 1, 2 and then 2 again, counting from the top.
+        int[] sandRows = {1, 2, 2};
+        for (int frame = 0; frame < 3; frame += 1) {
+            for (int row = 0; row < 3; row += 1) {
+                int i = frame * frameSize + row * 2 * 3;
+                boolean yellow = bytes[i] == (byte) 255 && bytes[i + 1] == (byte) 255 && bytes[i + 2] == 0;
+                assertThat(yellow).isEqualTo(row == sandRows[frame]);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class TestFrontiers {
+
+    private static ParticleSimulator frontierBoard(String board) {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString(board);
+        sim.useFrontiers();
+        return sim;
+    }
+
+    @Test
+    public void testIntSet() {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i += 1) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+            assertThat(set.size()).isEqualTo(expected.size());
+        }
+        for (int value = 0; value < 500; value += 1) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+        assertThat(set.toSortedArray().length).isEqualTo(expected.size());
+    }
+
+    @Test
+    public void testFrontierCells() {
+        // Cells are numbered x * height + y, with y = 0 at the bottom.
+        ParticleSimulator sim = frontierBoard("""
+            bbbbb
+            fpbpf
+            bbb.b
+            """);
+        assertThat(sim.burningFrontier().toSortedArray()).isEqualTo(new int[] {1, 13});
+        // Only the plant at x = 3 has an empty cell next to it.
+        assertThat(sim.growingFrontier().toSortedArray()).isEqualTo(new int[] {10});
+
+        sim.set(2, 1, ParticleFlavor.EMPTY);
+        assertThat(sim.growingFrontier().toSortedArray()).isEqualTo(new int[] {4, 10});
+        sim.set(3, 1, ParticleFlavor.BARRIER);
+        assertThat(sim.burningFrontier().toSortedArray()).isEqualTo(new int[] {1});
+        assertThat(sim.growingFrontier().toSortedArray()).isEqualTo(new int[] {4});
+        sim.set(2, 1, ParticleFlavor.FLOWER);
+        assertThat(sim.burningFrontier().toSortedArray()).isEqualTo(new int[] {1});
+        assertThat(sim.growingFrontier().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBurnOdds() {
+        String start = """
+            bbb
+            pfz
+            bbb
+            """;
+        int[] counts = new int[4];
+        for (int i = 0; i < 1000; i += 1) {
+            ParticleSimulator sim = frontierBoard(start);
+            sim.tick();
+            boolean plant = sim.particles[0][1].flavor == ParticleFlavor.FIRE;
+            boolean flower = sim.particles[2][1].flavor == ParticleFlavor.FIRE;
+            counts[(plant ? 1 : 0) + (flower ? 2 : 0)] += 1;
+        }
+        assertWithMessage("Neither should burn ~36% (expected ~360)").that(counts[0]).isAtLeast(250);
+        assertWithMessage("Only the plant should burn ~24% (expected ~240)").that(counts[1]).isAtLeast(150);
+        assertWithMessage("Only the flower should burn ~24% (expected ~240)").that(counts[2]).isAtLeast(150);
+        assertWithMessage("Both should burn ~16% (expected ~160)").that(counts[3]).isAtLeast(100);
+    }
+
+    @Test
+    public void testFireSpreadsThroughPlants() {
+        ParticleSimulator sim = frontierBoard("""
+            bbbbbbbb
+            fppppppb
+            bbbbbbbb
+            """);
+        for (int t = 0; t < 200 && sim.particles[6][1].flavor == ParticleFlavor.PLANT; t += 1) {
+            sim.tick();
+        }
+        assertThat(sim.particles[6][1].flavor).isNotEqualTo(ParticleFlavor.PLANT);
+    }
+
+    @Test
+    public void testIdlePlantsStillAge() {
+        String board = """
+            bbbbbbb
+            bpbzbpb
+            bbbbbbb
+            """;
+        ParticleSimulator frontier = frontierBoard(board);
+        ParticleSimulator countdown = ParticleSimulator.fromBoardString(board);
+        assertThat(frontier.growingFrontier().size()).isEqualTo(0);
+        for (int t = 0; t < Particle.PLANT_LIFESPAN + 1; t += 1) {
+            frontier.tick();
+            countdown.tick();
+            assertThat(frontier.toString()).isEqualTo(countdown.toString());
+            for (int x = 1; x < 6; x += 2) {
+                assertThat(frontier.lifespanAt(x, 1)).isEqualTo(countdown.lifespanAt(x, 1));
+            }
+        }
+        assertThat(frontier.particles[1][1].flavor).isEqualTo(ParticleFlavor.EMPTY);
+    }
+
+    @Test
+    public void testFrontiersStayInSync() {
+        ParticleSimulator sim = frontierBoard("""
+            n...s...n...
+            ..p...z.....
+            .pp..fp..pp.
+            ..ppp.ppzp..
+            .f..bbbb....
+            bbbbbbbbbbbb
+            """);
+        sim.setSeed(99);
+        for (int t = 0; t < 300; t += 1) {
+            sim.tick();
+            if (t % 40 == 0) {
+                sim.set(t % sim.width, 3, ParticleFlavor.FIRE);
+            }
+        }
+        int[] burning = sim.burningFrontier().toSortedArray();
+        int[] growing = sim.growingFrontier().toSortedArray();
+        long hash = sim.stateHash();
+        sim.rehash();
+        assertThat(sim.burningFrontier().toSortedArray()).isEqualTo(burning);
+        assertThat(sim.growingFrontier().toSortedArray()).isEqualTo(growing);
+        assertThat(sim.stateHash()).isEqualTo(hash);
+    }
+}
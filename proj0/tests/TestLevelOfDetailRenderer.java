@@ -0,0 +1,81 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Test;
+
+public class TestLevelOfDetailRenderer {
+
+    @Test
+    public void testDominantFlavor() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            ww.s.
+            wb.sb
+            """);
+        LevelOfDetailRenderer renderer = new LevelOfDetailRenderer(sim);
+
+        // 5 x 2 cells need levels of 3 x 1, 2 x 1 and 1 x 1 blocks above the board.
+        assertThat(renderer.numLevels()).isEqualTo(4);
+        assertThat(renderer.dominant(1, 0, 0)).isEqualTo(ParticleFlavor.WATER);
+        // A tie between sand and empty goes to the sand.
+        assertThat(renderer.dominant(1, 1, 0)).isEqualTo(ParticleFlavor.SAND);
+        // The last column has only two cells.
+        assertThat(renderer.dominant(1, 2, 0)).isEqualTo(ParticleFlavor.BARRIER);
+        assertThat(renderer.dominant(3, 0, 0)).isEqualTo(ParticleFlavor.WATER);
+    }
+
+    @Test
+    public void testIncrementalMatchesRebuilt() {
+        ParticleSimulator sim = new ParticleSimulator(37, 29);
+        sim.setSeed(5);
+        for (int x = 0; x < sim.width; x += 3) {
+            sim.set(x, sim.height - 1, ParticleFlavor.FOUNTAIN);
+            sim.set(x + 1 < sim.width ? x + 1 : x, 10, ParticleFlavor.PLANT);
+            sim.set(x, 5, ParticleFlavor.SAND);
+        }
+        sim.set(4, 10, ParticleFlavor.FIRE);
+        LevelOfDetailRenderer renderer = new LevelOfDetailRenderer(sim);
+
+        for (int t = 0; t < 200; t += 1) {
+            sim.tick();
+            if (t % 50 == 0) {
+                sim.set(t % sim.width, 20, ParticleFlavor.BARRIER);
+            }
+        }
+
+        LevelOfDetailRenderer rebuilt = new LevelOfDetailRenderer(sim);
+        for (int level = 0; level < renderer.numLevels(); level += 1) {
+            int block = 1 << level;
+            for (int bx = 0; bx * block < sim.width; bx += 1) {
+                for (int by = 0; by * block < sim.height; by += 1) {
+                    assertWithMessage("level %s block (%s, %s)", level, bx, by)
+                            .that(renderer.dominant(level, bx, by))
+                            .isEqualTo(rebuilt.dominant(level, bx, by));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLevelMatchesWindow() {
+        ParticleSimulator sim = new ParticleSimulator(4096, 4);
+        for (int x = 0; x < 64; x += 1) {
+            sim.set(x, 0, ParticleFlavor.BARRIER);
+        }
+        LevelOfDetailRenderer renderer = new LevelOfDetailRenderer(sim);
+        assertThat(renderer.numLevels()).isEqualTo(13);
+        assertThat(renderer.levelFor(4096)).isEqualTo(0);
+        assertThat(renderer.levelFor(1000)).isEqualTo(2);
+        assertThat(renderer.levelFor(1024)).isEqualTo(2);
+
+        renderer.zoom(4);
+        assertThat(renderer.viewSize()).isEqualTo(1024.0);
+        assertThat(renderer.levelFor(1024)).isEqualTo(0);
+
+        renderer.zoom(1.0 / 64);
+        assertThat(renderer.levelFor(1024)).isEqualTo(6);
+        // At that level one block covers 64 x 64 cells, which here is the
+        // whole height of the board.
+        assertThat(renderer.dominant(6, 0, 0)).isEqualTo(ParticleFlavor.BARRIER);
+        assertThat(renderer.dominant(6, 1, 0)).isEqualTo(ParticleFlavor.EMPTY);
+    }
+}
@@ -0,0 +1,111 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Test;
+
+public class TestLifespanWheel {
+
+    @Test
+    public void testWheelOrdering() {
+        LifespanWheel wheel = new LifespanWheel(8);
+        wheel.schedule(5, 3);
+        wheel.schedule(2, 3);
+        wheel.schedule(9, 11); // Same slot as tick 3, one lap later.
+        wheel.schedule(7, 4);
+        assertThat(wheel.size()).isEqualTo(4);
+
+        assertThat(wheel.drain(3)).isEqualTo(2);
+        assertThat(wheel.due(0)).isEqualTo(2);
+        assertThat(wheel.due(1)).isEqualTo(5);
+        wheel.insertDue(3);
+        assertThat(wheel.due(1)).isEqualTo(3);
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(wheel.drain(11)).isEqualTo(1);
+        assertThat(wheel.due(0)).isEqualTo(9);
+    }
+
+    @Test
+    public void testWheelDrainsManyCellsInOrder() {
+        // Enough cells per tick, scheduled out of order, to need several merges.
+        java.util.Random random = new java.util.Random(12);
+        LifespanWheel wheel = new LifespanWheel(16);
+        java.util.List<java.util.List<Integer>> expected = new java.util.ArrayList<>();
+        for (int tick = 0; tick < 40; tick += 1) {
+            expected.add(new java.util.ArrayList<>());
+        }
+        for (int i = 0; i < 20000; i += 1) {
+            int tick = random.nextInt(40);
+            int cell = random.nextInt(5) == 0 ? random.nextInt(100000) : i;
+            wheel.schedule(cell, tick);
+            expected.get(tick).add(cell);
+        }
+        for (int tick = 0; tick < 40; tick += 1) {
+            java.util.List<Integer> cells = expected.get(tick);
+            java.util.Collections.sort(cells);
+            assertThat(wheel.drain(tick)).isEqualTo(cells.size());
+            for (int i = 0; i < cells.size(); i += 1) {
+                assertWithMessage("due cell %s on tick %s", i, tick).that(wheel.due(i)).isEqualTo(cells.get(i));
+            }
+        }
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLifeSpanWithWheel() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("fbpbz");
+        sim.useLifespanWheel();
+
+        sim.tick();
+        assertThat(sim.lifespanAt(0, 0)).isEqualTo(Particle.FIRE_LIFESPAN - 1);
+        assertThat(sim.lifespanAt(2, 0)).isEqualTo(Particle.PLANT_LIFESPAN - 1);
+        assertThat(sim.lifespanAt(4, 0)).isEqualTo(Particle.FLOWER_LIFESPAN - 1);
+
+        for (int i = 0; i < Particle.FIRE_LIFESPAN - 2; i++) {
+            sim.tick();
+        }
+        assertThat(sim.particles[0][0].flavor).isEqualTo(ParticleFlavor.FIRE);
+        sim.tick();
+        assertThat(sim.particles[0][0].flavor).isEqualTo(ParticleFlavor.EMPTY);
+
+        for (int i = 0; i < Particle.PLANT_LIFESPAN - Particle.FIRE_LIFESPAN; i++) {
+            sim.tick();
+        }
+        assertThat(sim.particles[2][0].flavor).isEqualTo(ParticleFlavor.EMPTY);
+        assertThat(sim.particles[4][0].flavor).isEqualTo(ParticleFlavor.EMPTY);
+    }
+
+    @Test
+    public void testWheelMatchesCountdown() {
+        String board = """
+            n....s....z.
+            ............
+            ..p....p....
+            .pzp..fpp...
+            .pppfzppz.w.
+            bbbbbbbbbbbb
+            """;
+        for (long seed = 0; seed < 5; seed++) {
+            ParticleSimulator countdown = ParticleSimulator.fromBoardString(board);
+            ParticleSimulator wheel = ParticleSimulator.fromBoardString(board);
+            countdown.setSeed(seed);
+            wheel.setSeed(seed);
+            wheel.useLifespanWheel();
+
+            for (int t = 1; t <= 400; t++) {
+                countdown.tick();
+                wheel.tick();
+                assertWithMessage("Boards differ at tick %s with seed %s", t, seed)
+                        .that(wheel.toString())
+                        .isEqualTo(countdown.toString());
+                for (int x = 0; x < countdown.width; x++) {
+                    for (int y = 0; y < countdown.height; y++) {
+                        assertWithMessage("Lifespan at (%s, %s) differs at tick %s", x, y, t)
+                                .that(wheel.lifespanAt(x, y))
+                                .isEqualTo(countdown.lifespanAt(x, y));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Test;
+
+public class TestOutcomeDistribution {
+
+    private static final String BURN_START = """
+        bbb
+        pfz
+        bbb
+        """;
+
+    @Test
+    public void testBurnProbabilities() throws InterruptedException {
+        OutcomeDistribution distribution = OutcomeDistribution.run(BURN_START, 1, 100_000, 42, 4);
+
+        assertThat(distribution.trials()).isEqualTo(100_000);
+        assertThat(distribution.outcomes()).hasSize(4);
+
+        // Each flammable neighbor burns independently with probability 0.4.
+        checkContains(distribution, "bbb\npfz\nbbb", 0.36);
+        checkContains(distribution, "bbb\nffz\nbbb", 0.24);
+        checkContains(distribution, "bbb\npff\nbbb", 0.24);
+        checkContains(distribution, "bbb\nfff\nbbb", 0.16);
+    }
+
+    @Test
+    public void testSameSeedSameResultOnAnyThreadCount() throws InterruptedException {
+        String board = """
+            s...s
+            s.w..
+            bbbbb
+            """;
+        OutcomeDistribution oneThread = OutcomeDistribution.run(board, 3, 5_000, 7, 1);
+        OutcomeDistribution manyThreads = OutcomeDistribution.run(board, 3, 5_000, 7, 8);
+
+        assertThat(manyThreads.outcomes()).hasSize(oneThread.outcomes().size());
+        for (OutcomeDistribution.Outcome outcome : oneThread.outcomes()) {
+            assertWithMessage("Count for board:\n%s", outcome.board)
+                    .that(manyThreads.count(outcome.board))
+                    .isEqualTo(outcome.count);
+        }
+    }
+
+    @Test
+    public void testUnseenBoard() throws InterruptedException {
+        OutcomeDistribution distribution = OutcomeDistribution.run(BURN_START, 1, 100, 1, 2);
+        assertThat(distribution.count("bbb\nsss\nbbb")).isEqualTo(0);
+        assertThat(distribution.outcome("bbb\nsss\nbbb")).isNull();
+    }
+
+    /** Checks that board came up, and that its 95% interval is tight and
+     * close to the expected probability. */
+    private void checkContains(OutcomeDistribution distribution, String board, double expected) {
+        OutcomeDistribution.Outcome outcome = distribution.outcome(board);
+        assertWithMessage("Board never observed:\n%s", board).that(outcome).isNotNull();
+        assertThat(outcome.upper() - outcome.lower()).isLessThan(0.01);
+        assertThat(outcome.lower()).isLessThan(expected + 0.01);
+        assertThat(outcome.upper()).isGreaterThan(expected - 0.01);
+    }
+}
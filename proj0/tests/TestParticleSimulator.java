@@ -480,6 +480,51 @@ public class TestParticleSimulator {
         assertThat(sim.particles[0][0].flavor).isEqualTo(ParticleFlavor.SAND);
     }
 
+    @Test
+    public void testHashMatchesRehashAfterTicks() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            n...s.
+            ..w.p.
+            .pzf..
+            bbbbbb
+            """);
+
+        for (int i = 0; i < 200; i++) {
+            sim.tick();
+            long incremental = sim.hash();
+            sim.rehash();
+            assertWithMessage("Hash drifted at tick %s", i).that(incremental).isEqualTo(sim.hash());
+        }
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        String board = """
+            s.s
+            ...
+            bbb
+            """;
+        ParticleSimulator a = ParticleSimulator.fromBoardString(board);
+        ParticleSimulator b = ParticleSimulator.fromBoardString(board);
+        assertThat(a).isEqualTo(b);
+        assertThat(a.hashCode()).isEqualTo(b.hashCode());
+
+        b.set(1, 1, ParticleFlavor.WATER);
+        assertThat(a).isNotEqualTo(b);
+        b.set(1, 1, ParticleFlavor.EMPTY);
+        assertThat(a).isEqualTo(b);
+
+        // Boards that started differently can still end up the same.
+        a.tick();
+        ParticleSimulator fallen = ParticleSimulator.fromBoardString("""
+            ...
+            s.s
+            bbb
+            """);
+        assertThat(a).isEqualTo(fallen);
+        assertThat(new ParticleSimulator(3, 3).hash()).isEqualTo(0);
+    }
+
     private ParticleSimulator fromBoardString(String board) {
         String[] lines = board.trim().split("\\n");
         int height = lines.length;
@@ -0,0 +1,117 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRuleSet {
+
+    private static final String BOARD = """
+        n....s...n.....
+        ..s..sw.....s..
+        ...p..z..wpz...
+        .pp.f.p..pfp.w.
+        ..bbbb.s...bbb.
+        bbbbbbbbbbbbbbb
+        """;
+
+    @Test
+    public void testBuiltInRulesMatchBuiltInBehavior() {
+        ParticleSimulator expected = ParticleSimulator.fromBoardString(BOARD);
+        ParticleSimulator ruled = ParticleSimulator.fromBoardString(BOARD);
+        expected.setSeed(8);
+        ruled.setSeed(8);
+        ruled.setRules(RuleSet.parse(RuleSet.BUILT_IN));
+        for (int t = 0; t < 300; t += 1) {
+            expected.tick();
+            ruled.tick();
+            assertThat(ruled.stateHash()).isEqualTo(expected.stateHash());
+        }
+    }
+
+    @Test
+    public void testSandSinksThroughWater() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            s
+            w
+            w
+            b
+            """);
+        sim.setRules(RuleSet.parse("""
+            # Sand is heavier than water.
+            SAND: if DOWN is EMPTY -> move DOWN
+            SAND: if DOWN is WATER -> swap DOWN
+            WATER: -> stay
+            """));
+        sim.tick();
+        assertThat(sim.toString().trim()).isEqualTo("w\ns\nw\nb");
+        sim.tick();
+        assertThat(sim.toString().trim()).isEqualTo("w\nw\ns\nb");
+    }
+
+    @Test
+    public void testConditionsAndBecome() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            s.ss
+            .bww
+            """);
+        sim.setRules(RuleSet.parse("""
+            SAND: if DOWN is not EMPTY and LEFT is BARRIER or EMPTY -> become PLANT
+            """));
+        sim.tick();
+        // The rules replace falling, so the left sand stays put over its empty
+        // cell, and the right sand has a particle to its left.
+        assertThat(sim.toString().trim()).isEqualTo("s.ps\n.bww");
+        assertThat(sim.particles[2][1].lifespan).isEqualTo(Particle.PLANT_LIFESPAN);
+    }
+
+    @Test
+    public void testChance() {
+        RuleSet rules = RuleSet.parse("SAND: chance 1/4 -> become WATER");
+        int became = 0;
+        for (int i = 0; i < 2000; i += 1) {
+            ParticleSimulator sim = ParticleSimulator.fromBoardString("s");
+            sim.setRules(rules);
+            sim.tick();
+            if (sim.particles[0][0].flavor == ParticleFlavor.WATER) {
+                became += 1;
+            }
+        }
+        assertThat(became).isAtLeast(400);
+        assertThat(became).isAtMost(600);
+    }
+
+    @Test
+    public void testParseErrors() {
+        String[] bad = {
+            "SAND -> stay",
+            "SAND: if DOWN was EMPTY -> stay",
+            "SAND: -> teleport UP",
+            "SAND: chance 2 -> stay",
+            "SAND: if it is EMPTY -> move it",
+            "GOLD: -> stay",
+        };
+        for (String rule : bad) {
+            try {
+                RuleSet.parse("# comment\n" + rule);
+                Assert.fail("Expected an error for " + rule);
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).startsWith("line 2: ");
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyRuledFlavorsChange() {
+        RuleSet rules = RuleSet.parse("WATER: -> stay");
+        assertThat(rules.handles(ParticleFlavor.WATER)).isTrue();
+        assertThat(rules.handles(ParticleFlavor.SAND)).isFalse();
+
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            sw
+            ..
+            """);
+        sim.setRules(rules);
+        sim.tick();
+        assertThat(sim.toString().trim()).isEqualTo(".w\ns.");
+    }
+}
@@ -0,0 +1,79 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.function.Predicate;
+
+public class TestSimulationLoop {
+
+    /** Takes frames until one satisfies the check or two seconds pass. */
+    private Frame waitForFrame(SimulationLoop loop, Predicate<Frame> check)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Frame frame = loop.takeFrame();
+            if (frame != null && check.test(frame)) {
+                return frame;
+            }
+            Thread.sleep(1);
+        }
+        return null;
+    }
+
+    @Test
+    public void testPaintedSandFallsOnWorkerThread() throws InterruptedException {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            .
+            .
+            .
+            .
+            b
+            """);
+        SimulationLoop loop = new SimulationLoop(sim, 1000);
+        loop.start();
+        loop.paint(0, 4, ParticleFlavor.SAND);
+
+        int yellow = Color.YELLOW.getRGB();
+        Frame landed = waitForFrame(loop, f -> f.rgb(0, 1) == yellow);
+        loop.stop();
+
+        assertThat(landed).isNotNull();
+        assertThat(landed.rgb(0, 0)).isEqualTo(Color.GRAY.getRGB());
+        assertThat(landed.tick).isAtLeast(3);
+    }
+
+    @Test
+    public void testLoneWaterDropKeepsTicking() throws InterruptedException {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            ....w....
+            bbbbbbbbb
+            """);
+        SimulationLoop loop = new SimulationLoop(sim, 1000);
+        loop.start();
+        // A drop that stays put a few ticks running must not freeze the loop.
+        Frame later = waitForFrame(loop, f -> f.tick >= 500);
+        loop.stop();
+        assertThat(later).isNotNull();
+    }
+
+    @Test
+    public void testFramesAreSnapshots() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            s
+            .
+            """);
+        Frame before = Frame.of(sim);
+        sim.tick();
+        Frame after = Frame.of(sim);
+
+        assertThat(before.rgb(0, 1)).isEqualTo(Color.YELLOW.getRGB());
+        assertThat(after.rgb(0, 1)).isEqualTo(Color.BLACK.getRGB());
+        assertThat(after.color(0, 0)).isEqualTo(Color.YELLOW);
+    }
+
+    @Test
+    public void testStopWithoutStart() throws InterruptedException {
+        new SimulationLoop(new ParticleSimulator(2, 2), 100).stop();
+    }
+}
@@ -0,0 +1,152 @@
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestSpatialIndex {
+
+    private static int bruteCount(ParticleSimulator sim, ParticleFlavor flavor, int x0, int y0, int x1, int y1) {
+        int count = 0;
+        for (int x = Math.max(x0, 0); x <= Math.min(x1, sim.width - 1); x += 1) {
+            for (int y = Math.max(y0, 0); y <= Math.min(y1, sim.height - 1); y += 1) {
+                if (sim.particles[x][y].flavor == flavor) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int bruteNearest(ParticleSimulator sim, ParticleFlavor flavor, int x, int y) {
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int px = 0; px < sim.width; px += 1) {
+            for (int py = 0; py < sim.height; py += 1) {
+                long distance = (long) (px - x) * (px - x) + (long) (py - y) * (py - y);
+                if (sim.particles[px][py].flavor == flavor && distance < bestDistance) {
+                    best = px * sim.height + py;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static ParticleSimulator randomBoard(int width, int height, Random random) {
+        ParticleSimulator sim = new ParticleSimulator(width, height);
+        ParticleFlavor[] flavors = {ParticleFlavor.SAND, ParticleFlavor.WATER, ParticleFlavor.BARRIER};
+        for (int i = 0; i < width * height / 10; i += 1) {
+            sim.set(random.nextInt(width), random.nextInt(height), flavors[random.nextInt(flavors.length)]);
+        }
+        return sim;
+    }
+
+    @Test
+    public void testCountsMatchBruteForce() {
+        Random random = new Random(3);
+        ParticleSimulator sim = randomBoard(150, 97, random);
+        sim.setSeed(3);
+        SpatialIndex index = new SpatialIndex(sim, ParticleFlavor.SAND, ParticleFlavor.WATER);
+
+        for (int round = 0; round < 5; round += 1) {
+            for (int q = 0; q < 200; q += 1) {
+                int x0 = random.nextInt(170) - 10;
+                int y0 = random.nextInt(110) - 10;
+                int x1 = x0 + random.nextInt(120);
+                int y1 = y0 + random.nextInt(100);
+                for (ParticleFlavor flavor : new ParticleFlavor[] {ParticleFlavor.SAND, ParticleFlavor.WATER}) {
+                    assertWithMessage("%s in (%s, %s) to (%s, %s)", flavor, x0, y0, x1, y1)
+                            .that(index.count(flavor, x0, y0, x1, y1))
+                            .isEqualTo(bruteCount(sim, flavor, x0, y0, x1, y1));
+                }
+            }
+            for (int t = 0; t < 7; t += 1) {
+                sim.tick();
+            }
+        }
+        assertThat(index.count(ParticleFlavor.SAND)).isEqualTo(bruteCount(sim, ParticleFlavor.SAND, 0, 0, 149, 96));
+    }
+
+    @Test
+    public void testNearest() {
+        Random random = new Random(4);
+        ParticleSimulator sim = new ParticleSimulator(200, 130);
+        SpatialIndex index = new SpatialIndex(sim, ParticleFlavor.FIRE);
+        assertThat(index.nearest(ParticleFlavor.FIRE, 10, 10)).isEqualTo(-1);
+
+        for (int i = 0; i < 12; i += 1) {
+            sim.set(random.nextInt(sim.width), random.nextInt(sim.height), ParticleFlavor.FIRE);
+            for (int q = 0; q < 50; q += 1) {
+                int x = random.nextInt(sim.width);
+                int y = random.nextInt(sim.height);
+                int found = index.nearest(ParticleFlavor.FIRE, x, y);
+                int expected = bruteNearest(sim, ParticleFlavor.FIRE, x, y);
+                // Ties may pick a different cell at the same distance.
+                assertThat(distance(sim, found, x, y)).isEqualTo(distance(sim, expected, x, y));
+            }
+        }
+    }
+
+    private static long distance(ParticleSimulator sim, int cell, int x, int y) {
+        long dx = cell / sim.height - x;
+        long dy = cell % sim.height - y;
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void testSharesSimulatorWithOtherSinks() {
+        Random random = new Random(5);
+        ParticleSimulator sim = randomBoard(40, 30, random);
+        sim.setSeed(5);
+        int[] changes = {0};
+        DeltaSink counter = new DeltaSink() {
+            @Override
+            public void cellChanged(int cell, ParticleFlavor oldFlavor, ParticleFlavor newFlavor, int lifespan) {
+                changes[0] += 1;
+            }
+
+            @Override
+            public void endTick(long tick) {
+            }
+        };
+        sim.addDeltaSink(counter);
+        SpatialIndex index = new SpatialIndex(sim, ParticleFlavor.SAND);
+        LevelOfDetailRenderer renderer = new LevelOfDetailRenderer(sim);
+
+        for (int t = 0; t < 10; t += 1) {
+            sim.tick();
+        }
+        assertThat(changes[0]).isGreaterThan(0);
+        sim.removeDeltaSink(counter);
+        int seen = changes[0];
+        for (int t = 0; t < 10; t += 1) {
+            sim.tick();
+        }
+        assertThat(changes[0]).isEqualTo(seen);
+
+        // The index and the renderer kept following the board throughout.
+        assertThat(index.count(ParticleFlavor.SAND)).isEqualTo(bruteCount(sim, ParticleFlavor.SAND, 0, 0, 39, 29));
+        for (int x = 0; x < sim.width; x += 1) {
+            for (int y = 0; y < sim.height; y += 1) {
+                assertThat(renderer.dominant(0, x, y)).isEqualTo(sim.particles[x][y].flavor);
+            }
+        }
+        sim.removeDeltaSink(index);
+        sim.removeDeltaSink(renderer);
+        assertThat(sim.deltaSink()).isNull();
+    }
+
+    @Test
+    public void testUntrackedFlavor() {
+        SpatialIndex index = new SpatialIndex(new ParticleSimulator(4, 4), ParticleFlavor.SAND);
+        try {
+            index.count(ParticleFlavor.WATER);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("WATER");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/** Checks that a steady-state tick allocates next to nothing, so per-cell
+ * garbage doesn't creep back into tick, getNeighbors or Particle.action.
+ *
+ * Each scenario from TestParticleSimulator is tiled into a large board,
+ * warmed up until the JIT has compiled the tick loop and the first plants
+ * have died, and then measured with the thread's allocation counter. The
+ * budget applies to the average over every measured tick, so allocation
+ * that only comes back every so often (say when a wave of plants dies)
+ * still counts. One object per cell would cost kilobytes per tick on
+ * these boards. The budget can be set with -Dtick.allocation.budget=N.
+ * The tests are skipped on JVMs that can't count allocations.
+ */
+public class TestTickAllocation {
+    private static final long BUDGET = Long.getLong("tick.allocation.budget", 64);
+    private static final int WARMUP_TICKS = 300;
+    private static final int MEASURED_TICKS = 300;
+
+    private static final String[] SCENARIOS = {
+        // testFallVisual
+        """
+        s.s
+        s.s
+        ...
+        ...
+        bbb
+        """,
+        // testTickWithFlow
+        """
+        s...s
+        s.w..
+        bbbbb
+        """,
+        // testGrow
+        """
+        ...
+        .p.
+        bbb
+        """,
+        // testBurn
+        """
+        bbb
+        pfz
+        bbb
+        """,
+        // A fountain, so water keeps moving once everything else settles.
+        """
+        ..n..
+        .....
+        .....
+        bb.bb
+        """,
+    };
+
+    /** Repeats board times by times, so the boards have tens of thousands
+     * of cells. */
+    private static ParticleSimulator tiled(String board, int times) {
+        String[] rows = board.trim().split("\\n");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i += 1) {
+            for (String row : rows) {
+                sb.append(row.trim().repeat(times)).append('\n');
+            }
+        }
+        return ParticleSimulator.fromBoardString(sb.toString());
+    }
+
+    /** Returns the average number of bytes the calling thread allocates per
+     * tick of sim after a warmup. */
+    private static long bytesPerTick(ParticleSimulator sim) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("this JVM can't count allocated bytes", bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (int t = 0; t < WARMUP_TICKS; t += 1) {
+            sim.tick();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int t = 0; t < MEASURED_TICKS; t += 1) {
+            sim.tick();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_TICKS;
+    }
+
+    private static void checkScenarios(String mode, java.util.function.Consumer<ParticleSimulator> setUp) {
+        for (int i = 0; i < SCENARIOS.length; i += 1) {
+            ParticleSimulator sim = tiled(SCENARIOS[i], 40);
+            sim.setSeed(i);
+            setUp.accept(sim);
+            long bytes = bytesPerTick(sim);
+            assertWithMessage("bytes allocated per tick of scenario %s in %s mode", i, mode)
+                    .that(bytes)
+                    .isAtMost(BUDGET);
+        }
+    }
+
+    @Test
+    public void testTickDoesNotAllocate() {
+        checkScenarios("default", sim -> { });
+    }
+
+    @Test
+    public void testLifespanWheelTickDoesNotAllocate() {
+        checkScenarios("lifespan wheel", ParticleSimulator::useLifespanWheel);
+    }
+
+    @Test
+    public void testFrontierTickDoesNotAllocate() {
+        checkScenarios("frontier", ParticleSimulator::useFrontiers);
+    }
+
+    @Test
+    public void testLiquidTickDoesNotAllocate() {
+        checkScenarios("liquid", ParticleSimulator::useLiquidMode);
+    }
+
+    @Test
+    public void testRuleSetTickDoesNotAllocate() {
+        RuleSet rules = RuleSet.parse(RuleSet.BUILT_IN);
+        checkScenarios("rule set", sim -> sim.setRules(rules));
+    }
+}
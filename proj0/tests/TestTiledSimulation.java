@@ -0,0 +1,174 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestTiledSimulation {
+
+    private static ParticleSimulator world() {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString("""
+            n....s...n....s.
+            ..s....w....s...
+            ....pz....p..z..
+            .w..fp...pfp...w
+            p..bbbb....bbb.p
+            ...s.....w......
+            bbbbbbbbbbbbbbbb
+            """);
+        sim.setSeed(2024);
+        return sim;
+    }
+
+    @Test
+    public void testMatchesSingleSimulator() throws IOException {
+        ParticleSimulator expected = world();
+        try (TiledSimulation tiled = new TiledSimulation(world(), 3, TiledSimulation.Launch.THREADS)) {
+            for (int round = 0; round < 4; round += 1) {
+                tiled.tick(1 + round * 10);
+                for (int t = 0; t < 1 + round * 10; t += 1) {
+                    expected.tick();
+                }
+                ParticleSimulator gathered = tiled.gather();
+                assertThat(gathered.ticks()).isEqualTo(expected.ticks());
+                assertThat(gathered.toString()).isEqualTo(expected.toString());
+                assertThat(gathered.stateHash()).isEqualTo(expected.stateHash());
+            }
+        }
+    }
+
+    @Test
+    public void testGatheredWorldKeepsTicking() throws IOException {
+        ParticleSimulator expected = world();
+        ParticleSimulator gathered;
+        try (TiledSimulation tiled = new TiledSimulation(world(), 8, TiledSimulation.Launch.THREADS)) {
+            tiled.tick(25);
+            gathered = tiled.gather();
+        }
+        for (int t = 0; t < 25; t += 1) {
+            expected.tick();
+        }
+        for (int t = 0; t < 25; t += 1) {
+            expected.tick();
+            gathered.tick();
+        }
+        assertThat(gathered.stateHash()).isEqualTo(expected.stateHash());
+    }
+
+    @Test
+    public void testSingleTile() throws IOException {
+        ParticleSimulator expected = world();
+        try (TiledSimulation tiled = new TiledSimulation(world(), 1, TiledSimulation.Launch.THREADS)) {
+            tiled.tick(30);
+            for (int t = 0; t < 30; t += 1) {
+                expected.tick();
+            }
+            assertThat(tiled.gather().stateHash()).isEqualTo(expected.stateHash());
+        }
+    }
+
+    @Test
+    public void testRulesCarryOverToTiles() throws IOException {
+        // Sand that slides sideways, so tiles that dropped the rules would differ.
+        RuleSet rules = RuleSet.parse("""
+            SAND: if DOWN is EMPTY -> move DOWN
+            SAND: -> move LEFT | move RIGHT | stay
+            """);
+        ParticleSimulator expected = world();
+        expected.setRules(rules);
+        ParticleSimulator world = world();
+        world.setRules(rules);
+        try (TiledSimulation tiled = new TiledSimulation(world, 3, TiledSimulation.Launch.THREADS)) {
+            tiled.tick(30);
+            for (int t = 0; t < 30; t += 1) {
+                expected.tick();
+            }
+            ParticleSimulator gathered = tiled.gather();
+            assertThat(gathered.stateHash()).isEqualTo(expected.stateHash());
+            assertThat(gathered.rules()).isSameInstanceAs(rules);
+        }
+    }
+
+    @Test
+    public void testLiquidModeIsRejected() throws IOException {
+        ParticleSimulator world = world();
+        world.useLiquidMode();
+        try {
+            new TiledSimulation(world, 2, TiledSimulation.Launch.THREADS).close();
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("liquid");
+        }
+    }
+
+    @Test
+    public void testColumnSourceAndSink() throws IOException {
+        // The world only ever exists one column at a time on this side.
+        ParticleSimulator source = world();
+        ParticleSimulator expected = world();
+        TiledSimulation.ColumnSource columns = (x, flavors, lifespans) -> {
+            for (int y = 0; y < source.height; y += 1) {
+                flavors[y] = source.particles[x][y].flavor;
+                lifespans[y] = source.particles[x][y].lifespan;
+            }
+        };
+        try (TiledSimulation tiled = new TiledSimulation(source.width, source.height, 2024, columns, 4,
+                TiledSimulation.Launch.THREADS)) {
+            tiled.tick(20);
+            for (int t = 0; t < 20; t += 1) {
+                expected.tick();
+            }
+            int[] nextColumn = {0};
+            tiled.gather((x, flavors, lifespans) -> {
+                assertThat(x).isEqualTo(nextColumn[0]);
+                nextColumn[0] += 1;
+                for (int y = 0; y < flavors.length; y += 1) {
+                    assertThat(flavors[y]).isEqualTo(expected.particles[x][y].flavor);
+                    assertThat(lifespans[y]).isEqualTo(expected.particles[x][y].lifespan);
+                }
+            });
+            assertThat(nextColumn[0]).isEqualTo(expected.width);
+        }
+    }
+
+    @Test
+    public void testReadRandomOnlyAcceptsRandom() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TileWorker.writeRandom(new DataOutputStream(bytes), new Random(5));
+        Random random = TileWorker.readRandom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(random.nextLong()).isEqualTo(new Random(5).nextLong());
+
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(object)) {
+            out.writeObject(new ArrayList<>(java.util.List.of(1, 2, 3)));
+        }
+        ByteArrayOutputStream framed = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(framed);
+        data.writeInt(object.size());
+        object.writeTo(data);
+        data.flush();
+        try {
+            TileWorker.readRandom(new DataInputStream(new ByteArrayInputStream(framed.toByteArray())));
+            Assert.fail("Expected IOException for a list");
+        } catch (IOException e) {
+            // Refused by the filter.
+        }
+
+        // A huge length is refused before anything is allocated.
+        byte[] huge = {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+        try {
+            TileWorker.readRandom(new DataInputStream(new ByteArrayInputStream(huge)));
+            Assert.fail("Expected IOException for a huge length");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("length");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class TestWaterSolver {
+
+    private static ParticleSimulator liquidBoard(String board) {
+        ParticleSimulator sim = ParticleSimulator.fromBoardString(board);
+        sim.useLiquidMode();
+        return sim;
+    }
+
+    private static final String TALL_COLUMN = """
+        b......b
+        bw.....b
+        bw.....b
+        bw.....b
+        bw.....b
+        bw.....b
+        bw.....b
+        bbbbbbbb
+        """;
+
+    @Test
+    public void testColumnLevelsQuickly() {
+        ParticleSimulator sim = liquidBoard(TALL_COLUMN);
+        for (int t = 0; t < 10; t += 1) {
+            sim.tick();
+        }
+        assertThat(sim.toString().trim()).isEqualTo("""
+            b......b
+            b......b
+            b......b
+            b......b
+            b......b
+            b......b
+            bwwwwwwb
+            bbbbbbbb
+            """.trim());
+    }
+
+    @Test
+    public void testSettledWaterGoesStill() {
+        ParticleSimulator sim = liquidBoard(TALL_COLUMN);
+        for (int t = 0; t < 10; t += 1) {
+            sim.tick();
+        }
+        WaterSolver solver = sim.waterSolver();
+        long hash = sim.stateHash();
+        for (int t = 0; t < 5; t += 1) {
+            sim.tick();
+            assertThat(solver.movedLastTick()).isEqualTo(0);
+        }
+        assertThat(sim.stateHash()).isEqualTo(hash);
+        for (int x = 1; x < 7; x += 1) {
+            assertThat(solver.isStill(x * sim.height + 1)).isTrue();
+        }
+
+        // Opening the wall wakes the water next to it.
+        sim.set(7, 1, ParticleFlavor.EMPTY);
+        assertThat(solver.isStill(6 * sim.height + 1)).isFalse();
+        for (int t = 0; t < 50 && sim.particles[7][1].flavor == ParticleFlavor.EMPTY; t += 1) {
+            sim.tick();
+        }
+        assertThat(sim.particles[7][1].flavor).isEqualTo(ParticleFlavor.WATER);
+    }
+
+    @Test
+    public void testBodies() {
+        ParticleSimulator sim = liquidBoard("""
+            bbbbbbbbb
+            bwwbwwbwb
+            bwwbbwbwb
+            bbbbbbbbb
+            """);
+        sim.tick();
+        WaterSolver solver = sim.waterSolver();
+        assertThat(solver.numBodies()).isEqualTo(3);
+        assertThat(solver.sameBody(4, 2, 5, 1)).isTrue();
+        assertThat(solver.sameBody(1, 1, 4, 2)).isFalse();
+
+        sim.set(6, 2, ParticleFlavor.WATER);
+        assertThat(solver.sameBody(4, 2, 7, 1)).isTrue();
+        sim.set(5, 2, ParticleFlavor.BARRIER);
+        assertThat(solver.sameBody(4, 2, 7, 1)).isFalse();
+        sim.tick();
+        // The barrier split the joined body into three.
+        assertThat(solver.numBodies()).isEqualTo(4);
+    }
+
+    /** Counts bodies of water in sim the slow way, by flooding every one. */
+    private static int countBodies(ParticleSimulator sim) {
+        boolean[][] seen = new boolean[sim.width][sim.height];
+        int bodies = 0;
+        java.util.ArrayDeque<int[]> queue = new java.util.ArrayDeque<>();
+        for (int x = 0; x < sim.width; x += 1) {
+            for (int y = 0; y < sim.height; y += 1) {
+                if (seen[x][y] || sim.particles[x][y].flavor != ParticleFlavor.WATER) {
+                    continue;
+                }
+                bodies += 1;
+                seen[x][y] = true;
+                queue.add(new int[] {x, y});
+                while (!queue.isEmpty()) {
+                    int[] c = queue.poll();
+                    int[][] neighbors = {{c[0] - 1, c[1]}, {c[0] + 1, c[1]}, {c[0], c[1] - 1}, {c[0], c[1] + 1}};
+                    for (int[] n : neighbors) {
+                        if (sim.validIndex(n[0], n[1]) && !seen[n[0]][n[1]]
+                                && sim.particles[n[0]][n[1]].flavor == ParticleFlavor.WATER) {
+                            seen[n[0]][n[1]] = true;
+                            queue.add(n);
+                        }
+                    }
+                }
+            }
+        }
+        return bodies;
+    }
+
+    @Test
+    public void testBodiesFollowEdits() {
+        // Only bodies next to a change are flooded again, so check the count
+        // stays right as water is added, removed and walled off at random.
+        java.util.Random random = new java.util.Random(43);
+        ParticleSimulator sim = liquidBoard("""
+            ..........
+            .wwww.www.
+            .wwwwwwww.
+            .ww.wwwww.
+            bbbbbbbbbb
+            """);
+        sim.setSeed(43);
+        ParticleFlavor[] edits = {ParticleFlavor.WATER, ParticleFlavor.EMPTY, ParticleFlavor.BARRIER};
+        for (int t = 0; t < 200; t += 1) {
+            for (int e = 0; e < 3; e += 1) {
+                sim.set(random.nextInt(sim.width), 1 + random.nextInt(sim.height - 1),
+                        edits[random.nextInt(edits.length)]);
+            }
+            assertThat(sim.waterSolver().numBodies()).isEqualTo(countBodies(sim));
+            sim.tick();
+            assertThat(sim.waterSolver().numBodies()).isEqualTo(countBodies(sim));
+        }
+    }
+
+    @Test
+    public void testPressureFillsBasin() {
+        // Water pushes up through the gap and out into the basin on the right.
+        ParticleSimulator sim = liquidBoard("""
+            bwwwb.....
+            bwwwb.....
+            bwwwb.....
+            bwww......
+            bbbbbbbbbb
+            """);
+        for (int t = 0; t < 40; t += 1) {
+            sim.tick();
+        }
+        for (int x = 1; x < sim.width; x += 1) {
+            if (x != 4) {
+                assertThat(sim.particles[x][0].flavor).isEqualTo(ParticleFlavor.BARRIER);
+                assertThat(sim.particles[x][1].flavor).isEqualTo(ParticleFlavor.WATER);
+            }
+        }
+        long hash = sim.stateHash();
+        sim.rehash();
+        assertThat(sim.stateHash()).isEqualTo(hash);
+    }
+}
@@ -0,0 +1,6 @@
+public enum Direction {
+    UP,
+    DOWN,
+    LEFT,
+    RIGHT
+}
@@ -1,2 +1,88 @@
+import java.awt.*;
+import java.util.Map;
+
+/** One entity of a ParticleWorld. A Particle holds no state of its own: it
+ * is an entity id plus the world whose component arrays hold the entity's
+ * flavor, position, velocity, lifespan and temperature. A handle goes stale
+ * once its entity is despawned, and must not be used after that.
+ */
 public class Particle {
+    public static final int PLANT_LIFESPAN = 150;
+    public static final int FLOWER_LIFESPAN = 75;
+    public static final int FIRE_LIFESPAN = 10;
+    /** Chance that fire spreads to each flammable neighbor on a tick. */
+    public static final double BURN_CHANCE = 0.4;
+    public static final Map<ParticleFlavor, Integer> LIFESPANS =
+            Map.of(ParticleFlavor.FLOWER, FLOWER_LIFESPAN,
+                   ParticleFlavor.PLANT, PLANT_LIFESPAN,
+                   ParticleFlavor.FIRE, FIRE_LIFESPAN);
+
+    private static final Color PLANT_COLOR = new Color(0, 255, 0);
+    private static final Color FIRE_COLOR = new Color(255, 0, 0);
+    private static final Color FLOWER_COLOR = new Color(255, 141, 161);
+
+    private final ParticleWorld world;
+    private final int id;
+
+    Particle(ParticleWorld world, int id) {
+        this.world = world;
+        this.id = id;
+    }
+
+    /** Returns the color particles of the given flavor are drawn in. */
+    public static Color color(ParticleFlavor flavor) {
+        return switch (flavor) {
+            case EMPTY -> Color.BLACK;
+            case SAND -> Color.YELLOW;
+            case BARRIER -> Color.GRAY;
+            case WATER -> Color.BLUE;
+            case FOUNTAIN -> Color.CYAN;
+            case PLANT -> PLANT_COLOR;
+            case FIRE -> FIRE_COLOR;
+            case FLOWER -> FLOWER_COLOR;
+        };
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public ParticleFlavor flavor() {
+        return world.flavor(id);
+    }
+
+    public Color color() {
+        return color(flavor());
+    }
+
+    public int x() {
+        return world.x(id);
+    }
+
+    public int y() {
+        return world.y(id);
+    }
+
+    public int lifespan() {
+        return world.lifespan(id);
+    }
+
+    public int temperature() {
+        return world.temperature(id);
+    }
+
+    /** Moves this particle to (x, y), replacing whatever is there. */
+    public void moveInto(int x, int y) {
+        world.moveInto(id, x, y);
+    }
+
+    /** Falls one cell; see ParticleWorld.fall. */
+    public boolean fall() {
+        return world.fall(id);
+    }
+
+    /** Flows sideways; see ParticleWorld.flow. */
+    public boolean flow() {
+        return world.flow(id);
+    }
 }
@@ -0,0 +1,10 @@
+public enum ParticleFlavor {
+    SAND,
+    BARRIER,
+    WATER,
+    PLANT,
+    FIRE,
+    EMPTY,
+    FOUNTAIN,
+    FLOWER
+}
@@ -0,0 +1,450 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** The hard-mode simulator, stored as an entity-component system.
+ *
+ * Every non-empty cell holds an entity. An entity is just an index into
+ * parallel primitive arrays, one per component: flavor, position, velocity,
+ * lifespan and temperature. A grid maps each cell back to the entity in it.
+ * A tick runs one system at a time (aging, gravity, flow, growth and
+ * combustion), and each system but gravity walks the component arrays from
+ * start to end. Ids of despawned entities are reused, so the arrays stay dense.
+ *
+ * The rules are proj0's: sand, water, plants and flowers fall one cell
+ * into an empty cell below, water flows left or right, plants and flowers
+ * grow, fountains pour water and fire spreads to plants and flowers with
+ * Particle.BURN_CHANCE. Fire also heats its neighbors, but temperature
+ * never changes the odds of catching fire, so boards burn as in proj0.
+ */
+public class ParticleWorld {
+    public static final Map<Character, ParticleFlavor> LETTER_TO_PARTICLE = Map.of(
+            's', ParticleFlavor.SAND,
+            'b', ParticleFlavor.BARRIER,
+            'w', ParticleFlavor.WATER,
+            'p', ParticleFlavor.PLANT,
+            'f', ParticleFlavor.FIRE,
+            '.', ParticleFlavor.EMPTY,
+            'n', ParticleFlavor.FOUNTAIN,
+            'z', ParticleFlavor.FLOWER
+    );
+
+    /** Heat a fire gives each of its neighbors per tick. */
+    public static final int FIRE_HEAT = 40;
+    /** Every particle loses 1 / 2^COOLING_SHIFT of its heat per tick. */
+    public static final int COOLING_SHIFT = 2;
+
+    private static final ParticleFlavor[] FLAVORS = ParticleFlavor.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /** Directions a plant or flower can grow in, each as likely as not growing. */
+    private static final Direction[] GROWTH_DIRECTIONS = {Direction.UP, Direction.LEFT, Direction.RIGHT};
+    private static final byte EMPTY = (byte) ParticleFlavor.EMPTY.ordinal();
+    private static final byte SAND = (byte) ParticleFlavor.SAND.ordinal();
+    private static final byte WATER = (byte) ParticleFlavor.WATER.ordinal();
+    private static final byte PLANT = (byte) ParticleFlavor.PLANT.ordinal();
+    private static final byte FLOWER = (byte) ParticleFlavor.FLOWER.ordinal();
+    private static final byte FIRE = (byte) ParticleFlavor.FIRE.ordinal();
+    private static final byte FOUNTAIN = (byte) ParticleFlavor.FOUNTAIN.ordinal();
+
+    public final int width;
+    public final int height;
+
+    // Components, indexed by entity id. A free id has flavor EMPTY.
+    private byte[] flavor = new byte[64];
+    private int[] posX = new int[64];
+    private int[] posY = new int[64];
+    /** Cells the entity moved by on this tick (or the last one, between
+     * ticks): velY is -1 after a fall and velX is -1 or 1 after a flow. */
+    private int[] velX = new int[64];
+    private int[] velY = new int[64];
+    private int[] lifespan = new int[64];
+    private int[] temperature = new int[64];
+
+    /** One past the highest id ever used. */
+    private int numIds;
+    private int numEntities;
+    private int[] freeIds = new int[16];
+    private int numFree;
+
+    /** Entity in each cell, numbered x * height + y, or -1 if it is empty. */
+    private final int[] grid;
+
+    /** Cells and flavors that systems spawn into, held back until the
+     * system has walked every entity so newborns wait for the next tick. */
+    private int[] pendingCells = new int[16];
+    private byte[] pendingFlavors = new byte[16];
+    private int numPending;
+
+    private final Random random = new Random();
+
+    public ParticleWorld(int width, int height) {
+        this.width = width;
+        this.height = height;
+        grid = new int[width * height];
+        Arrays.fill(grid, -1);
+    }
+
+    /** Reads a board written the way toString writes one: one line per
+     * row, top row first, one letter from LETTER_TO_PARTICLE per cell. */
+    public static ParticleWorld fromBoardString(String board) {
+        String[] lines = board.trim().split("\\n");
+        int height = lines.length;
+        int width = lines[0].trim().length();
+
+        ParticleWorld world = new ParticleWorld(width, height);
+        for (int i = 0; i < height; i += 1) {
+            String line = lines[i].trim();
+            for (int x = 0; x < width; x += 1) {
+                world.spawn(LETTER_TO_PARTICLE.get(line.charAt(x)), x, height - 1 - i);
+            }
+        }
+        return world;
+    }
+
+    /** Seeds the random numbers used by flow, growth and fire, making every
+     * following tick reproducible. */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    public boolean validIndex(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /** Puts a new particle of the given flavor at (x, y), replacing whatever
+     * is there, and returns its id. Spawning EMPTY just clears the cell and
+     * returns -1. */
+    public int spawn(ParticleFlavor f, int x, int y) {
+        int cell = x * height + y;
+        if (grid[cell] >= 0) {
+            despawn(grid[cell]);
+        }
+        if (f == ParticleFlavor.EMPTY) {
+            return -1;
+        }
+        int id;
+        if (numFree > 0) {
+            numFree -= 1;
+            id = freeIds[numFree];
+        } else {
+            if (numIds == flavor.length) {
+                grow(2 * numIds);
+            }
+            id = numIds;
+            numIds += 1;
+        }
+        flavor[id] = (byte) f.ordinal();
+        posX[id] = x;
+        posY[id] = y;
+        velX[id] = 0;
+        velY[id] = 0;
+        lifespan[id] = Particle.LIFESPANS.getOrDefault(f, -1);
+        temperature[id] = 0;
+        grid[cell] = id;
+        numEntities += 1;
+        return id;
+    }
+
+    /** Removes the given entity, leaving its cell empty. */
+    public void despawn(int id) {
+        grid[posX[id] * height + posY[id]] = -1;
+        flavor[id] = EMPTY;
+        numEntities -= 1;
+        if (numFree == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, 2 * numFree);
+        }
+        freeIds[numFree] = id;
+        numFree += 1;
+    }
+
+    private void grow(int capacity) {
+        flavor = Arrays.copyOf(flavor, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        lifespan = Arrays.copyOf(lifespan, capacity);
+        temperature = Arrays.copyOf(temperature, capacity);
+    }
+
+    public int numEntities() {
+        return numEntities;
+    }
+
+    /** Returns the id of the entity at (x, y), or -1 if the cell is empty. */
+    public int entityAt(int x, int y) {
+        return grid[x * height + y];
+    }
+
+    /** Returns the particle at (x, y), or null if the cell is empty. */
+    public Particle particleAt(int x, int y) {
+        int id = entityAt(x, y);
+        return id < 0 ? null : new Particle(this, id);
+    }
+
+    public ParticleFlavor flavorAt(int x, int y) {
+        int id = entityAt(x, y);
+        return id < 0 ? ParticleFlavor.EMPTY : FLAVORS[flavor[id]];
+    }
+
+    public ParticleFlavor flavor(int id) {
+        return FLAVORS[flavor[id]];
+    }
+
+    public int x(int id) {
+        return posX[id];
+    }
+
+    public int y(int id) {
+        return posY[id];
+    }
+
+    public int lifespan(int id) {
+        return lifespan[id];
+    }
+
+    public int temperature(int id) {
+        return temperature[id];
+    }
+
+    /** Returns how many cells right the given entity moved this tick. */
+    public int velocityX(int id) {
+        return velX[id];
+    }
+
+    /** Returns how many cells up the given entity moved this tick. */
+    public int velocityY(int id) {
+        return velY[id];
+    }
+
+    /** Returns the x offset of the neighbor in direction d. */
+    public static int dx(Direction d) {
+        return switch (d) {
+            case LEFT -> -1;
+            case RIGHT -> 1;
+            default -> 0;
+        };
+    }
+
+    /** Returns the y offset of the neighbor in direction d. */
+    public static int dy(Direction d) {
+        return switch (d) {
+            case UP -> 1;
+            case DOWN -> -1;
+            default -> 0;
+        };
+    }
+
+    /** Returns the flavor code of the cell at (x, y), treating cells off the
+     * board as barriers. */
+    private byte code(int x, int y) {
+        if (!validIndex(x, y)) {
+            return (byte) ParticleFlavor.BARRIER.ordinal();
+        }
+        int id = grid[x * height + y];
+        return id < 0 ? EMPTY : flavor[id];
+    }
+
+    /** Moves the given entity to (x, y), replacing whatever is there. */
+    public void moveInto(int id, int x, int y) {
+        int cell = x * height + y;
+        if (grid[cell] == id) {
+            return;
+        }
+        if (grid[cell] >= 0) {
+            despawn(grid[cell]);
+        }
+        grid[posX[id] * height + posY[id]] = -1;
+        grid[cell] = id;
+        posX[id] = x;
+        posY[id] = y;
+    }
+
+    /** Moves the given entity down one cell if that cell is empty, and sets
+     * its velocity to the move. Returns whether it moved. */
+    public boolean fall(int id) {
+        int x = posX[id];
+        int y = posY[id] + dy(Direction.DOWN);
+        velX[id] = 0;
+        if (code(x, y) != EMPTY) {
+            velY[id] = 0;
+            return false;
+        }
+        velY[id] = dy(Direction.DOWN);
+        moveInto(id, x, y);
+        return true;
+    }
+
+    /** Moves the given entity left, right or not at all, with equal chances,
+     * if the cell it picks is empty, and sets its velocity to the move.
+     * Returns whether it moved. */
+    public boolean flow(int id) {
+        Direction d = switch (random.nextInt(3)) {
+            case 0 -> Direction.LEFT;
+            case 1 -> Direction.RIGHT;
+            default -> null;
+        };
+        velX[id] = 0;
+        if (d == null || code(posX[id] + dx(d), posY[id]) != EMPTY) {
+            return false;
+        }
+        velX[id] = dx(d);
+        moveInto(id, posX[id] + dx(d), posY[id]);
+        return true;
+    }
+
+    /** Advances the world by one tick. */
+    public void tick() {
+        age();
+        gravity();
+        flow();
+        growth();
+        combustion();
+    }
+
+    /** Counts down every lifespan and despawns the entities whose lifespans
+     * run out. As in proj0, a particle does nothing on the tick it dies. */
+    public void age() {
+        for (int id = 0; id < numIds; id += 1) {
+            if (flavor[id] != EMPTY && lifespan[id] > 0) {
+                lifespan[id] -= 1;
+                if (lifespan[id] == 0) {
+                    despawn(id);
+                }
+            }
+        }
+    }
+
+    /** Makes every sand, water, plant and flower entity fall. Unlike the
+     * other systems, this one walks the grid column by column from the
+     * bottom up, as proj0 does: the cell below has to empty before the
+     * particle above can fall into it, so a falling stack stays together. */
+    public void gravity() {
+        for (int cell = 0; cell < grid.length; cell += 1) {
+            int id = grid[cell];
+            if (id < 0) {
+                continue;
+            }
+            byte f = flavor[id];
+            if (f == SAND || f == WATER || f == PLANT || f == FLOWER) {
+                fall(id);
+            }
+        }
+    }
+
+    /** Makes resting water flow and fountains pour water into empty cells
+     * below them. */
+    public void flow() {
+        for (int id = 0; id < numIds; id += 1) {
+            byte f = flavor[id];
+            if (f == WATER && velY[id] == 0) {
+                flow(id);
+            } else if (f == FOUNTAIN && code(posX[id], posY[id] + dy(Direction.DOWN)) == EMPTY) {
+                addPending(posX[id], posY[id] + dy(Direction.DOWN), WATER);
+            }
+        }
+        spawnPending();
+    }
+
+    /** Lets every resting plant and flower grow up, left, right or not at all,
+     * with equal chances, into an empty cell. */
+    public void growth() {
+        for (int id = 0; id < numIds; id += 1) {
+            byte f = flavor[id];
+            if ((f != PLANT && f != FLOWER) || velY[id] != 0) {
+                continue;
+            }
+            int choice = random.nextInt(GROWTH_DIRECTIONS.length + 1);
+            if (choice == GROWTH_DIRECTIONS.length) {
+                continue;
+            }
+            int x = posX[id] + dx(GROWTH_DIRECTIONS[choice]);
+            int y = posY[id] + dy(GROWTH_DIRECTIONS[choice]);
+            if (code(x, y) == EMPTY) {
+                addPending(x, y, f);
+            }
+        }
+        spawnPending();
+    }
+
+    /** Lets every fire heat each neighbor by FIRE_HEAT and set each plant
+     * and flower next to it alight with Particle.BURN_CHANCE, then cools
+     * every entity. Water soaks up heat and never warms up. Plants and
+     * flowers that catch fire wait until the next tick to spread it. */
+    public void combustion() {
+        for (int id = 0; id < numIds; id += 1) {
+            if (flavor[id] == FIRE) {
+                for (Direction d : DIRECTIONS) {
+                    int x = posX[id] + dx(d);
+                    int y = posY[id] + dy(d);
+                    heat(x, y);
+                    ignite(x, y);
+                }
+            }
+        }
+        for (int i = 0; i < numPending; i += 1) {
+            int id = grid[pendingCells[i]];
+            flavor[id] = FIRE;
+            lifespan[id] = Particle.FIRE_LIFESPAN;
+            velX[id] = 0;
+            velY[id] = 0;
+        }
+        numPending = 0;
+        for (int id = 0; id < numIds; id += 1) {
+            temperature[id] = flavor[id] == WATER ? 0 : temperature[id] - (temperature[id] >> COOLING_SHIFT);
+        }
+    }
+
+    private void heat(int x, int y) {
+        if (validIndex(x, y) && grid[x * height + y] >= 0) {
+            temperature[grid[x * height + y]] += FIRE_HEAT;
+        }
+    }
+
+    private void ignite(int x, int y) {
+        byte f = code(x, y);
+        if ((f == PLANT || f == FLOWER) && random.nextDouble() < Particle.BURN_CHANCE) {
+            addPending(x, y, FIRE);
+        }
+    }
+
+    private void addPending(int x, int y, byte f) {
+        if (numPending == pendingCells.length) {
+            pendingCells = Arrays.copyOf(pendingCells, 2 * numPending);
+            pendingFlavors = Arrays.copyOf(pendingFlavors, 2 * numPending);
+        }
+        pendingCells[numPending] = x * height + y;
+        pendingFlavors[numPending] = f;
+        numPending += 1;
+    }
+
+    /** Spawns everything addPending held back. When two entities grew into
+     * the same cell, the first one to ask gets it. */
+    private void spawnPending() {
+        for (int i = 0; i < numPending; i += 1) {
+            int cell = pendingCells[i];
+            if (grid[cell] < 0) {
+                spawn(FLAVORS[pendingFlavors[i]], cell / height, cell % height);
+            }
+        }
+        numPending = 0;
+    }
+
+    @Override
+    public String toString() {
+        Map<ParticleFlavor, Character> flavorToChar = new HashMap<>();
+        for (Map.Entry<Character, ParticleFlavor> entry : LETTER_TO_PARTICLE.entrySet()) {
+            flavorToChar.put(entry.getValue(), entry.getKey());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int y = height - 1; y >= 0; y -= 1) {
+            for (int x = 0; x < width; x += 1) {
+                sb.append(flavorToChar.get(flavorAt(x, y)));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,2 +1,252 @@
-public class TestParticle {
-}
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestParticle {
+
+    @Test
+    public void testColor() {
+        assertThat(Particle.color(ParticleFlavor.EMPTY)).isEqualTo(Color.BLACK);
+        assertThat(Particle.color(ParticleFlavor.SAND)).isEqualTo(Color.YELLOW);
+        assertThat(Particle.color(ParticleFlavor.BARRIER)).isEqualTo(Color.GRAY);
+        assertThat(Particle.color(ParticleFlavor.WATER)).isEqualTo(Color.BLUE);
+        assertThat(Particle.color(ParticleFlavor.FOUNTAIN)).isEqualTo(Color.CYAN);
+        assertThat(Particle.color(ParticleFlavor.PLANT)).isEqualTo(new Color(0, 255, 0));
+        assertThat(Particle.color(ParticleFlavor.FIRE)).isEqualTo(new Color(255, 0, 0));
+        assertThat(Particle.color(ParticleFlavor.FLOWER)).isEqualTo(new Color(255, 141, 161));
+
+        ParticleWorld world = new ParticleWorld(1, 1);
+        world.spawn(ParticleFlavor.SAND, 0, 0);
+        assertThat(world.particleAt(0, 0).color()).isEqualTo(Color.YELLOW);
+    }
+
+    @Test
+    public void testMoveInto() {
+        ParticleWorld world = new ParticleWorld(2, 1);
+        Particle fire = world.particleAt(0, 0);
+        assertThat(fire).isNull();
+        world.spawn(ParticleFlavor.FIRE, 0, 0);
+        world.spawn(ParticleFlavor.SAND, 1, 0);
+        fire = world.particleAt(0, 0);
+
+        fire.moveInto(1, 0);
+        assertThat(world.flavorAt(0, 0)).isEqualTo(ParticleFlavor.EMPTY);
+        assertThat(world.flavorAt(1, 0)).isEqualTo(ParticleFlavor.FIRE);
+        assertThat(fire.x()).isEqualTo(1);
+        assertThat(fire.lifespan()).isEqualTo(Particle.FIRE_LIFESPAN);
+        // The sand that was in the way is gone.
+        assertThat(world.numEntities()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFall() {
+        // Note that 0, 0 is the bottom left, and 0, 1 is the top left.
+        ParticleWorld world = ParticleWorld.fromBoardString("""
+                ss
+                .b
+                """);
+        assertThat(world.particleAt(0, 1).fall()).isTrue();
+        assertThat(world.flavorAt(0, 1)).isEqualTo(ParticleFlavor.EMPTY);
+        assertThat(world.flavorAt(0, 0)).isEqualTo(ParticleFlavor.SAND);
+
+        // Blocked by a barrier.
+        assertThat(world.particleAt(1, 1).fall()).isFalse();
+        assertThat(world.flavorAt(1, 1)).isEqualTo(ParticleFlavor.SAND);
+        assertThat(world.flavorAt(1, 0)).isEqualTo(ParticleFlavor.BARRIER);
+    }
+
+    @Test
+    public void testFallingOneCellPerTick() {
+        ParticleWorld world = new ParticleWorld(1, 5);
+        int sand = world.spawn(ParticleFlavor.SAND, 0, 4);
+        int[] expectedY = {3, 2, 1, 0, 0};
+        int[] expectedVelocity = {-1, -1, -1, -1, 0};
+        for (int t = 0; t < expectedY.length; t += 1) {
+            world.tick();
+            assertThat(world.y(sand)).isEqualTo(expectedY[t]);
+            assertThat(world.velocityY(sand)).isEqualTo(expectedVelocity[t]);
+        }
+    }
+
+    @Test
+    public void testStackFallsTogether() {
+        // The top sand has the lower id, but the bottom one falls first.
+        ParticleWorld world = ParticleWorld.fromBoardString("""
+                s
+                s
+                .
+                .
+                b
+                """);
+        world.tick();
+        assertThat(world.toString()).isEqualTo(".\ns\ns\n.\nb\n");
+        world.tick();
+        assertThat(world.toString()).isEqualTo(".\n.\ns\ns\nb\n");
+    }
+
+    @Test
+    public void testFlow() {
+        int movedLeftCount = 0;
+        int movedRightCount = 0;
+        int stayedCount = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            ParticleWorld world = ParticleWorld.fromBoardString("""
+                    .w.
+                    bbb
+                    """);
+            world.setSeed(i);
+            world.particleAt(1, 1).flow();
+            if (world.flavorAt(0, 1) == ParticleFlavor.WATER) {
+                movedLeftCount += 1;
+            } else if (world.flavorAt(2, 1) == ParticleFlavor.WATER) {
+                movedRightCount += 1;
+            } else if (world.flavorAt(1, 1) == ParticleFlavor.WATER) {
+                stayedCount += 1;
+            }
+        }
+        assertThat(movedLeftCount).isGreaterThan(240);
+        assertThat(movedRightCount).isGreaterThan(240);
+        assertThat(stayedCount).isGreaterThan(240);
+
+        // Velocity records the move.
+        ParticleWorld moving = ParticleWorld.fromBoardString("""
+                .w.
+                bbb
+                """);
+        moving.setSeed(3);
+        Particle drop = moving.particleAt(1, 1);
+        while (drop.x() == 1) {
+            drop.flow();
+        }
+        assertThat(moving.velocityX(drop.id())).isEqualTo(drop.x() - 1);
+        assertThat(moving.velocityY(drop.id())).isEqualTo(0);
+
+        // Water never overwrites its neighbors.
+        ParticleWorld blocked = ParticleWorld.fromBoardString("bwb");
+        for (int i = 0; i < 10; i++) {
+            blocked.particleAt(1, 0).flow();
+            assertThat(blocked.toString()).isEqualTo("bwb\n");
+        }
+    }
+
+    @Test
+    public void testLifespans() {
+        ParticleWorld world = ParticleWorld.fromBoardString("""
+                bfb
+                bbb
+                """);
+        Particle fire = world.particleAt(1, 1);
+        for (int t = 1; t < Particle.FIRE_LIFESPAN; t += 1) {
+            world.tick();
+            assertThat(fire.lifespan()).isEqualTo(Particle.FIRE_LIFESPAN - t);
+        }
+        world.tick();
+        assertThat(world.flavorAt(1, 1)).isEqualTo(ParticleFlavor.EMPTY);
+        assertThat(world.numEntities()).isEqualTo(5);
+
+        // The freed id is handed out again.
+        assertThat(world.spawn(ParticleFlavor.SAND, 1, 1)).isEqualTo(fire.id());
+    }
+
+    @Test
+    public void testCombustion() {
+        int countNeither = 0;
+        int countPlantOnly = 0;
+        int countFlowerOnly = 0;
+        int countBoth = 0;
+        for (int i = 0; i < 1000; i++) {
+            ParticleWorld world = ParticleWorld.fromBoardString("""
+                    bbb
+                    pfz
+                    bbb
+                    """);
+            world.combustion();
+            boolean plant = world.flavorAt(0, 1) == ParticleFlavor.FIRE;
+            boolean flower = world.flavorAt(2, 1) == ParticleFlavor.FIRE;
+            if (plant && flower) {
+                countBoth += 1;
+            } else if (plant) {
+                countPlantOnly += 1;
+            } else if (flower) {
+                countFlowerOnly += 1;
+            } else {
+                countNeither += 1;
+            }
+        }
+        // Neither (36%), plant only (24%), flower only (24%), both (16%).
+        assertThat(countNeither).isAtLeast(250);
+        assertThat(countPlantOnly).isAtLeast(150);
+        assertThat(countFlowerOnly).isAtLeast(150);
+        assertThat(countBoth).isAtLeast(100);
+
+        // A plant set alight takes on a fire's lifespan, and waits a tick
+        // before spreading the fire further.
+        ParticleWorld row = ParticleWorld.fromBoardString("""
+                bbbbb
+                bfppb
+                bbbbb
+                """);
+        Particle plant = row.particleAt(2, 1);
+        row.setSeed(0);
+        while (plant.flavor() == ParticleFlavor.PLANT) {
+            row.combustion();
+            if (plant.flavor() == ParticleFlavor.FIRE) {
+                assertThat(row.flavorAt(3, 1)).isEqualTo(ParticleFlavor.PLANT);
+            }
+        }
+        assertThat(plant.lifespan()).isEqualTo(Particle.FIRE_LIFESPAN);
+    }
+
+    @Test
+    public void testFireHeatsNeighbors() {
+        // Sand next to one fire warms by FIRE_HEAT a tick and loses a
+        // quarter of its heat: 30, 53, 70. Water stays cold.
+        ParticleWorld world = ParticleWorld.fromBoardString("""
+                bbbbb
+                bfswb
+                bbbbb
+                """);
+        Particle sand = world.particleAt(2, 1);
+        Particle water = world.particleAt(3, 1);
+        int[] expected = {30, 53, 70};
+        for (int t = 0; t < expected.length; t += 1) {
+            world.tick();
+            assertThat(sand.temperature()).isEqualTo(expected[t]);
+            assertThat(water.temperature()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testFountainAndGrowth() {
+        ParticleWorld world = ParticleWorld.fromBoardString("""
+                .n.
+                ...
+                ...
+                bbb
+                """);
+        world.tick();
+        // Newborn water waits a tick before it falls.
+        assertThat(world.toString()).isEqualTo(".n.\n.w.\n...\nbbb\n");
+        world.tick();
+        assertThat(world.flavorAt(1, 1)).isEqualTo(ParticleFlavor.WATER);
+        assertThat(world.flavorAt(1, 2)).isEqualTo(ParticleFlavor.WATER);
+
+        ParticleWorld garden = ParticleWorld.fromBoardString("""
+                .....
+                ..p..
+                bbbbb
+                """);
+        garden.setSeed(2);
+        for (int t = 0; t < 20; t += 1) {
+            int before = garden.numEntities();
+            garden.tick();
+            // A tick grows each plant at most once, so at most one new plant
+            // per plant that was there before the tick.
+            assertThat(garden.numEntities() - 5).isAtMost(2 * (before - 5));
+        }
+        assertThat(garden.numEntities()).isGreaterThan(6);
+    }
+}